@@ -0,0 +1,47 @@
+package dream;
+
+/**
+ * An in-memory connection that queues lines like a real connection and writes them to nowhere.
+ */
+public class SinkConnection implements Connection
+{
+    private final Outbound outbound = new Outbound(Long.MAX_VALUE, Outbound.Policy.DROP);
+    private long written; // The number of bytes written so far
+
+    @Override
+    public void send(byte[] line)
+    {
+        this.outbound.offer(line);
+
+        byte[] next;
+        while((next = this.outbound.poll()) != null) // Write straight away, as the writer of an idle connection would
+            this.written += next.length;
+    }
+
+    @Override
+    public void close()
+    {
+
+    }
+
+    @Override
+    public String address()
+    {
+        return "sink";
+    }
+
+    @Override
+    public long backlog()
+    {
+        return this.outbound.backlog();
+    }
+
+    /**
+     * Get the number of bytes written to this connection
+     * @return the total bytes written
+     */
+    public long written()
+    {
+        return this.written;
+    }
+}
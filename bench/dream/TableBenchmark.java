@@ -0,0 +1,98 @@
+package dream;
+
+import game.Pacing;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static game.Constants.*;
+
+/**
+ * Measures the work a table does for its clients: parsing their commands, building the high scores and broadcasting.
+ * The clients are connected through in-memory connections.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark
+{
+    @Param({ "1", "4" })
+    public int players;
+
+    private Table table;
+    private Client client;
+    private PrintStream console;
+
+    private final byte[] names = ALL_NAMES.getBytes(StandardCharsets.US_ASCII); // The lines as the transports hand them over
+    private final byte[] connection = CONNECTION_STATUS.getBytes(StandardCharsets.US_ASCII);
+    private final byte[] deal = DEAL.getBytes(StandardCharsets.US_ASCII);
+
+    @Setup
+    public void setUp()
+    {
+        this.console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Keep the console output of the table out of the results
+
+        this.table = new Table(null, 1, this.players, Integer.MAX_VALUE, 0, Pacing.ZERO, new SplittableRandom(42));
+        for(int i = 0; i < this.players; ++i)
+        {
+            Client client = new Client(new SinkConnection(), null);
+            this.table.seat(client);
+            client.join(this.table);
+            client.handle(PLAYER_NAME + " Player" + i);
+            client.handle(READY);
+        }
+        this.table.game().set(this.table.seats());
+        this.table.scoresChanged();
+        this.client = this.table.clients()[0];
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        System.setOut(this.console);
+    }
+
+    @Benchmark
+    public void parseNames()
+    {
+        this.client.handle(this.names, this.names.length);
+    }
+
+    @Benchmark
+    public void parseConnection()
+    {
+        this.client.handle(this.connection, this.connection.length);
+    }
+
+    @Benchmark
+    public void parseDeal()
+    {
+        this.client.handle(this.deal, this.deal.length); // Not asked, so the decision is ignored
+    }
+
+    @Benchmark
+    public String getHighScores()
+    {
+        return this.table.getHighScores();
+    }
+
+    @Benchmark
+    public void scoresChanged()
+    {
+        this.table.scoresChanged();
+    }
+
+    @Benchmark
+    public void broadcast()
+    {
+        this.table.broadcast(MESSAGE + " Player0 was dealt two cards: A Ten of Clubs and a Jack of Diamonds");
+    }
+}
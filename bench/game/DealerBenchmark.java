@@ -0,0 +1,45 @@
+package game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the dealer dealing cards to a player and to itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealerBenchmark
+{
+    private final Deck deck = new Deck();
+    private final Dealer dealer = new Dealer(new SplittableRandom(42));
+    private final Player player = new Player("Bench");
+
+    @Setup(Level.Iteration)
+    public void startRound()
+    {
+        this.dealer.startRound();
+    }
+
+    @Benchmark
+    public Card dealPlayer()
+    {
+        if(this.deck.size() == 0)
+            this.deck.reset();
+        return this.dealer.dealPlayer(this.deck, this.player);
+    }
+
+    @Benchmark
+    public int dealSelf()
+    {
+        this.deck.reset();
+        this.dealer.reset();
+        this.dealer.dealSelf(this.deck);
+        return this.dealer.score();
+    }
+}
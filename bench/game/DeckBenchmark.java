@@ -0,0 +1,69 @@
+package game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resetting a deck and removing cards from it, and dealing rounds from a shoe of one and eight decks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeckBenchmark
+{
+    private final Deck deck = new Deck();
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Param({"1", "8"})
+    public int decks;
+    private Deck dealt; // The shoe dealing the rounds
+
+    @Setup
+    public void setUp()
+    {
+        this.dealt = new Deck(this.decks, Deck.DEFAULT_PENETRATION);
+    }
+
+    @Benchmark
+    public Deck reset()
+    {
+        this.deck.reset();
+        return this.deck;
+    }
+
+    @Benchmark
+    public Card removeCard()
+    {
+        if(this.deck.size() == 0)
+            this.deck.reset();
+        return this.deck.removeCard(this.deck.size() / 2);
+    }
+
+    /**
+     * A round at a full table deals about twenty cards, then the shoe is shuffled only if the cut card was reached
+     */
+    @Benchmark
+    public int dealRound()
+    {
+        int total = 0;
+        for(int i = 0; i < 20; ++i)
+            total += this.dealt.draw(this.random).score();
+        this.dealt.endRound();
+        return total;
+    }
+
+    @Benchmark
+    public int drawWholeDeck()
+    {
+        this.deck.reset();
+        int total = 0;
+        while(this.deck.size() > 0)
+            total += this.deck.removeCard(this.deck.size() - 1).score();
+        return total;
+    }
+}
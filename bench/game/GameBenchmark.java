@@ -0,0 +1,88 @@
+package game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static game.Constants.*;
+
+/**
+ * Measures scoring a round and playing a whole round with players that always hold and nobody listening.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark
+{
+    private static final int[] SCORES = { 18, 20, 23, 20 }; // Two players tie, one is busted
+
+    private final Seat[] seats = new Seat[SCORES.length];
+    private Game game;
+
+    @Setup
+    public void setUp()
+    {
+        for(int i = 0; i < this.seats.length; ++i)
+        {
+            Player player = new Player("Seat" + i);
+            this.seats[i] = new Seat()
+            {
+                @Override
+                public Player player()
+                {
+                    return player;
+                }
+
+                @Override
+                public boolean isReady()
+                {
+                    return true;
+                }
+            };
+        }
+
+        Host host = new Host()
+        {
+            @Override
+            public Seat[] seats()
+            {
+                return GameBenchmark.this.seats;
+            }
+
+            @Override
+            public void broadcast(String message)
+            {
+
+            }
+
+            @Override
+            public String ask(Seat seat)
+            {
+                return HOLD;
+            }
+        };
+
+        this.game = new Game(host, Integer.MAX_VALUE, new SplittableRandom(42));
+        this.game.set(this.seats);
+    }
+
+    @Benchmark
+    public Result determineWinner()
+    {
+        for(int i = 0; i < this.seats.length; ++i) // Scoring resets the players, so give them their scores again
+            this.seats[i].player().add(SCORES[i]);
+        return this.game.determineWinner();
+    }
+
+    @Benchmark
+    public Result playRound()
+    {
+        Result result = this.game.playRound();
+        this.game.reset();
+        return result;
+    }
+}
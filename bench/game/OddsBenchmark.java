@@ -0,0 +1,47 @@
+package game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures working out the odds of a player, from a shoe the cache has seen and from a shoe it has not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OddsBenchmark
+{
+    @Param({"1", "6"})
+    private int decks;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private Deck deck;
+    private int[] composition;
+
+    @Setup(Level.Trial)
+    public void createShoe()
+    {
+        this.deck = new Deck(this.decks, 100);
+        this.composition = this.deck.composition();
+    }
+
+    @Benchmark
+    public Odds cached()
+    {
+        return Odds.of(14, this.composition);
+    }
+
+    @Benchmark
+    public Odds drawn()
+    {
+        if(this.deck.size() < 10)
+            this.deck.reset();
+        this.deck.draw(this.random);
+        return Odds.of(14, this.deck.composition());
+    }
+}
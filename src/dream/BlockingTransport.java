@@ -0,0 +1,53 @@
+package dream;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.function.Supplier;
+
+/**
+ * This class accepts connections on a blocking server socket and reads each connection on its own thread.
+ * The threads come from the server's executor, so they are virtual threads when the server runs in virtual mode.
+ */
+public class BlockingTransport implements Transport
+{
+    private final Supplier<Outbound> outbound; // Creates the outbound queue of every connection
+    private final Deadlines deadlines; // The read and write deadlines of every connection
+
+    /**
+     * Create the transport
+     * @param outbound creates the outbound queue of every connection
+     * @param deadlines the read and write deadlines of every connection
+     */
+    public BlockingTransport(Supplier<Outbound> outbound, Deadlines deadlines)
+    {
+        this.outbound = outbound;
+        this.deadlines = deadlines;
+    }
+
+    @Override
+    public void listen(InetAddress address, int port, Server server) throws IOException
+    {
+        ServerSocket serverSocket = new ServerSocket(port, 0, address); // Create the serverSocket and listen on the specified URL and port number.
+        Log.info("started", "Server is up and running!");
+
+        while(true) // While the server is up and running.
+        {
+            try
+            {
+                Socket socket = serverSocket.accept(); // Assign the client to the incoming socket received by the serverSocket
+                Metrics.accepted();
+                SocketConnection connection = SocketConnection.open(socket, this.outbound.get(), server::execute, this.deadlines);
+                Client client = new Client(connection, server); // create a new connection
+                Log.info("connected", "Connected to Client " + connection.address());
+
+                server.execute(() -> connection.read(client)); // Read each connection on its own thread
+            }
+            catch (Exception e)
+            {
+                Log.log(Log.Level.ERROR, 0, "accept", "Could not accept a connection", e);
+            }
+        }
+    }
+}
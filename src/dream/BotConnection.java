@@ -0,0 +1,64 @@
+package dream;
+
+import game.Strategy;
+
+import static game.Constants.*;
+
+/**
+ * This class connects a bot filling an empty seat to its table.
+ * Nothing is sent anywhere: the bot answers the dealer's question as soon as it is asked.
+ */
+public class BotConnection implements Connection
+{
+    private final Strategy strategy; // How the bot decides whether to deal or hold
+    private Client client; // The bot
+
+    /**
+     * Create the connection of a bot
+     * @param strategy how the bot decides whether to deal or hold
+     */
+    public BotConnection(Strategy strategy)
+    {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Set the bot this connection belongs to
+     * @param client the bot
+     */
+    void attach(Client client)
+    {
+        this.client = client;
+    }
+
+    @Override
+    public void send(String message)
+    {
+        if(message.equals(ASK)) // Answer straight away, the table is already waiting for the decision
+            this.client.handle(this.strategy.deal(this.client.player().score()) ? DEAL : HOLD);
+    }
+
+    @Override
+    public void send(byte[] line)
+    {
+
+    }
+
+    @Override
+    public void close()
+    {
+
+    }
+
+    @Override
+    public String address()
+    {
+        return "bot";
+    }
+
+    @Override
+    public long backlog()
+    {
+        return 0;
+    }
+}
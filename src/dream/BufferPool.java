@@ -0,0 +1,57 @@
+package dream;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps a pool of direct byte buffers so connections do not allocate a new buffer for every write.
+ */
+public class BufferPool
+{
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>(); // The buffers that are free to be used
+    private final AtomicInteger pooled = new AtomicInteger(); // The free buffers in the pool, counted before a buffer is added and after one is taken so it is never fewer
+    private final int bufferSize; // The capacity of every buffer in the pool
+    private final int maxPooled; // The maximum number of free buffers kept in the pool
+
+    /**
+     * Create a pool of buffers
+     * @param bufferSize the capacity of every buffer
+     * @param maxPooled the maximum number of free buffers kept around
+     */
+    public BufferPool(int bufferSize, int maxPooled)
+    {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Take a cleared buffer from the pool, creating one if the pool is empty
+     * @return a buffer ready to be written into
+     */
+    public ByteBuffer acquire()
+    {
+        ByteBuffer buffer = this.buffers.poll();
+        if(buffer == null)
+            return ByteBuffer.allocateDirect(this.bufferSize);
+
+        this.pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Give a buffer back to the pool
+     * @param buffer the buffer that is no longer being used
+     */
+    public void release(ByteBuffer buffer)
+    {
+        if(this.pooled.incrementAndGet() > this.maxPooled) // Only keep a bounded number of free buffers around
+        {
+            this.pooled.decrementAndGet();
+            return;
+        }
+        this.buffers.offer(buffer);
+    }
+}
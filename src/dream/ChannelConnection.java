@@ -0,0 +1,267 @@
+package dream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class represents a connection over a non-blocking socket channel served by an event loop.
+ * Messages can be sent from any thread; they are queued and written by the event loop when the channel can take them.
+ */
+public class ChannelConnection implements Connection
+{
+    private static final int MAX_LINE_LENGTH = 8192; // The longest line a client is allowed to send
+
+    private final SocketChannel channel; // The channel connecting the client to the server
+    private final EventLoop loop; // The event loop serving this channel
+    private final LineDecoder decoder = new LineDecoder(MAX_LINE_LENGTH); // Splits the bytes read into lines
+    private Client client; // The client the lines are for
+    private LineDecoder.Handler lines; // Hands the lines to the client
+
+    private final Outbound pending; // Encoded messages waiting to be written
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(); // Whether the loop has been asked to write the pending messages
+    private volatile boolean closing = false; // Whether the connection should be closed once the pending messages are written
+    private boolean closed = false; // Whether the channel has been closed, only used by the event loop
+    private final Deadlines.Deadline deadline; // Evicts the client if it goes quiet or stops taking what is written to it
+
+    private SelectionKey key; // The key of the channel in the loop's selector
+    private ByteBuffer out; // The write buffer being drained, taken from the pool only while there is something to write
+    private byte[] current; // The message being copied into the write buffer
+    private int currentOffset; // How much of the current message has been copied
+    private volatile long unwritten = 0; // The bytes taken from the queue which the channel has not taken yet
+
+    /**
+     * Create a new connection over a channel
+     * @param channel the channel connecting the server and the client
+     * @param loop the event loop that will serve the channel
+     * @param pending the queue of messages waiting to be written
+     * @param deadlines the read and write deadlines of the connections
+     */
+    private ChannelConnection(SocketChannel channel, EventLoop loop, Outbound pending, Deadlines deadlines)
+    {
+        this.channel = channel;
+        this.loop = loop;
+        this.pending = pending;
+        this.deadline = deadlines.deadline(this);
+    }
+
+    /**
+     * Open a connection over a channel, whose deadlines are only checked once it has been fully created
+     * @param channel the channel connecting the server and the client
+     * @param loop the event loop that will serve the channel
+     * @param pending the queue of messages waiting to be written
+     * @param deadlines the read and write deadlines of the connections
+     * @return the connection
+     */
+    public static ChannelConnection open(SocketChannel channel, EventLoop loop, Outbound pending, Deadlines deadlines)
+    {
+        ChannelConnection connection = new ChannelConnection(channel, loop, pending, deadlines);
+        connection.deadline.start();
+        return connection;
+    }
+
+    /**
+     * Set the client the lines read from this connection are handed to
+     * @param client the client of this connection
+     */
+    void attach(Client client)
+    {
+        this.client = client;
+        this.lines = client::handle;
+    }
+
+    /**
+     * Get the channel of this connection
+     * @return the socket channel
+     */
+    SocketChannel channel()
+    {
+        return this.channel;
+    }
+
+    /**
+     * Called by the event loop once the channel has been registered with its selector
+     * @param key the selection key of the channel
+     */
+    void registered(SelectionKey key)
+    {
+        this.key = key;
+        if(!this.pending.isEmpty() || this.closing) // Anything sent before registration can now be written
+            flush();
+    }
+
+    /**
+     * Decode the bytes read from the channel and hand every completed line to the client
+     * @param buffer the bytes read from the channel
+     * @return false if the client sent a line that was too long or true if otherwise
+     */
+    boolean decode(ByteBuffer buffer)
+    {
+        this.deadline.read();
+        return this.decoder.decode(buffer, this.lines);
+    }
+
+    @Override
+    public void send(byte[] line)
+    {
+        if(!this.channel.isOpen() || this.closing)
+            return;
+
+        if(!this.pending.offer(line)) // The client is too far behind
+        {
+            this.closing = true;
+            this.loop.execute(this::closeNow);
+            return;
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void close()
+    {
+        this.closing = true;
+        scheduleFlush(); // The channel is closed by the loop once the pending messages are written
+    }
+
+    @Override
+    public void abort()
+    {
+        this.closing = true;
+        this.loop.execute(this::closeNow);
+    }
+
+    /**
+     * Ask the event loop to write the pending messages, unless it has already been asked to
+     */
+    private void scheduleFlush()
+    {
+        if(this.flushScheduled.compareAndSet(false, true))
+            this.loop.execute(this::flush);
+    }
+
+    /**
+     * Write as many pending messages as the channel will take. Only called on the event loop's thread.
+     */
+    void flush()
+    {
+        if(this.key == null || !this.key.isValid()) // Not registered yet or already closed
+            return;
+
+        try
+        {
+            while(true)
+            {
+                if(this.out == null)
+                    this.out = this.loop.writeBuffers().acquire();
+
+                fill(); // Copy as much of the pending messages as fits into the write buffer
+                this.out.flip();
+                if(!this.out.hasRemaining())
+                    break;
+
+                if(this.channel.write(this.out) > 0) // Any bytes taken are progress, even if the rest has to wait
+                    this.deadline.wrote();
+                if(this.out.hasRemaining()) // The socket buffer is full, wait until the channel is writable again
+                {
+                    this.unwritten = this.out.remaining() + (this.current == null ? 0 : this.current.length - this.currentOffset);
+                    this.out.compact();
+                    this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                this.out.clear();
+            }
+        }
+        catch (IOException e)
+        {
+            closeNow();
+            return;
+        }
+
+        // Everything has been written
+        this.unwritten = 0;
+        this.loop.writeBuffers().release(this.out);
+        this.out = null;
+        this.key.interestOps(SelectionKey.OP_READ);
+        this.flushScheduled.set(false);
+
+        if(!this.pending.isEmpty()) // A message may have been queued after the queue was drained
+            scheduleFlush();
+        else if(this.closing)
+            closeNow();
+    }
+
+    /**
+     * Copy pending messages into the write buffer until it is full or there are no more messages
+     */
+    private void fill()
+    {
+        while(this.out.hasRemaining())
+        {
+            if(this.current == null)
+            {
+                this.current = this.pending.poll();
+                this.currentOffset = 0;
+                if(this.current == null)
+                    return;
+            }
+
+            int length = Math.min(this.out.remaining(), this.current.length - this.currentOffset);
+            this.out.put(this.current, this.currentOffset, length);
+            this.currentOffset += length;
+            if(this.currentOffset == this.current.length)
+                this.current = null;
+        }
+    }
+
+    /**
+     * Close the channel straight away, dropping anything that was not written. Only called on the event loop's thread.
+     */
+    void closeNow()
+    {
+        if(this.closed) // Already closed, and the client already told
+            return;
+        this.closed = true;
+
+        this.deadline.stop();
+        try
+        {
+            this.channel.close(); // Closing the channel also cancels its key
+        }
+        catch (IOException ignored)
+        {
+
+        }
+
+        if(this.out != null)
+        {
+            this.loop.writeBuffers().release(this.out);
+            this.out = null;
+        }
+
+        this.pending.clear();
+
+        if(this.client != null)
+            this.client.disconnected();
+    }
+
+    @Override
+    public long backlog()
+    {
+        return this.pending.backlog() + this.unwritten;
+    }
+
+    @Override
+    public String address()
+    {
+        try
+        {
+            return String.valueOf(this.channel.getRemoteAddress());
+        }
+        catch (IOException e)
+        {
+            return "unknown";
+        }
+    }
+}
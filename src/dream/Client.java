@@ -1,175 +1,583 @@
 package dream;
 
 import game.Player;
+import game.Seat;
+import game.Strategy;
+import history.Entry;
+import history.History;
+import history.Standing;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import static game.Constants.*;
 
 /**
  * This class represents a player connection to the server and is used to interact with the server.
+ * The transport carrying the connection hands it every line the client sends.
+ * Where the player is in their lifecycle is kept in a single atomic state, moved on by compare-and-set,
+ * so the connection thread and the table's thread always agree on it without a lock.
  */
-public class Client implements Runnable
+public class Client implements Seat
 {
+    /**
+     * The lifecycle of a player
+     */
+    public enum State
+    {
+        CONNECTING, // Connected but has not sent their name
+        LOBBY, // Named, but not ready to play
+        READY, // Ready to play, whether waiting for a seat or playing
+        AWAITING_DECISION, // Asked by the dealer whether to deal or hold
+        DECIDED, // Answered the dealer, the table has not taken the answer yet
+        SPECTATING, // Watching a table without a seat
+        DISCONNECTED // Quit or lost their connection
+    }
+
+    private static final byte[] NO_RESPONSE = Outbound.encode(""); // The empty line answering commands that have no response
+
     private Player player; // The player it encapsulates
-    private final Socket socket; // The socket connecting the client to the server
-    private final PrintWriter writer; //For sending server responses to the client
-    private final BufferedReader reader; // For receiving client responses
+    private volatile Table table; // The table the player is seated at
+    private final Connection connection; // The connection to the client
+    private final Server server; // The server the client connected to
 
-    private boolean deal; // A flag to indicate if the player chose to deal another card
-    private boolean hold; // A flag to indicate if the player chose to hold their card
-    private boolean ready; // A flag to indicate if the player is ready for the game to begin
+    private final AtomicReference<State> state = new AtomicReference<>(State.CONNECTING); // Where the player is in their lifecycle
+    private volatile String session; // The token the player can resume their session with, null until they have introduced themselves
+    private volatile long missed; // The sequence number of the first line of the table's feed the player missed once their connection was lost
+    private final ReentrantLock leaving = new ReentrantLock(); // Makes leaving and taking down the lines missed a single step
+    private long watched; // The sequence number of the next line of the table's feed a spectator is sent, only used by the table's fan out
+    private volatile CompletableFuture<String> decision; // Completed with Deal or Hold when the player answers the dealer's question
 
     /**
-     * Create a new Connection object to connect the server with a client via a socket
-     * @param socket the socket connecting the server and the client
-     * @throws Exception if the streams of the socket were not obtained
+     * Create a new Client object for a connection to the server
+     * @param connection the connection between the server and the client
+     * @param server the server the client connected to
      */
-    public Client(Socket socket) throws Exception
+    public Client(Connection connection, Server server)
     {
-        this.socket = socket;
-        this.writer = new PrintWriter(socket.getOutputStream());
-        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        this.connection = connection;
+        this.server = server;
+    }
 
-        this.deal = false;
-        this.hold = false;
-        this.ready = false;
+    /**
+     * Create a bot to fill an empty seat. The bot is ready to play straight away.
+     * @param name the name of the bot
+     * @param strategy how the bot decides whether to deal or hold
+     * @param server the server the bot plays on
+     * @return the bot
+     */
+    static Client bot(String name, Strategy strategy, Server server)
+    {
+        BotConnection connection = new BotConnection(strategy);
+        Client client = new Client(connection, server);
+        connection.attach(client);
+        client.player = new Player(name);
+        client.state.set(State.READY);
+        return client;
+    }
 
-        String[] playerDetails = this.receive().split(" "); // Receive the name of the player from the client
-        if(playerDetails[0].equals(PLAYER_NAME))
-            this.player = new Player(playerDetails[1]);
+    /**
+     * Create the placeholder of a player whose game was interrupted and who has not come back yet.
+     * The seat is skipped by the game, and holds if it is ever asked.
+     * @param name the name of the player
+     * @param session the session token the player takes their seat back with, null if they had none
+     * @param server the server the game is played on
+     * @return the placeholder
+     */
+    static Client absent(String name, String session, Server server)
+    {
+        Client client = new Client(new BotConnection(score -> false), server);
+        client.player = new Player(name);
+        client.session = session;
+        client.state.set(State.DISCONNECTED);
+        return client;
     }
 
-    @Override
-    public void run()
+    /**
+     * Handle a message received from the client
+     * @param message the line of text sent by the client
+     */
+    public void handle(String message)
     {
-        while(Server.active())
+        byte[] line = message.getBytes(StandardCharsets.UTF_8);
+        handle(line, line.length);
+    }
+
+    /**
+     * Handle a line received from the client
+     * @param line the bytes of the line, which are reused once this returns
+     * @param length the number of bytes in the line
+     */
+    public void handle(byte[] line, int length)
+    {
+        Command command = Command.decode(line, length); // Decode the command without creating a String
+        Metrics.received(command);
+
+        State state = this.state.get();
+        if(state == State.DISCONNECTED || command == Command.PONG) // Lines still arriving after the player left are ignored, and a Pong needs no answer
+            return;
+
+        if(state == State.CONNECTING && command == Command.RESUME) // A player who lost their connection is coming back
+        {
+            resume(command.argument(line, length));
+            return;
+        }
+
+        if(state == State.CONNECTING && command == Command.WATCH) // A spectator wants to follow a table
         {
-            String message = receive(); // Receive messages from the client
-            if(message.equals(QUIT)) // If it is a quit message, the client quit unexpectedly
+            watch(command.argument(line, length));
+            return;
+        }
+
+        if(state == State.CONNECTING) // The first message is the name of the player
+        {
+            String name = command == Command.NAME ? command.argument(line, length) : null; // Receive the name of the player from the client
+            if(name != null)
             {
-                this.ready = false;
+                this.player = new Player(name);
+                if(!this.state.compareAndSet(State.CONNECTING, State.LOBBY)) // The connection was lost meanwhile
+                    return;
+                this.session = this.server.session(this); // Only sent to a client that asks for it, so older clients see no line they did not ask for
+                if(this.table == null) // Wait in the lobby for a seat
+                    this.server.lobby().enter(this);
+            }
+            else
+                this.connection.close(); // The client did not introduce itself
+            return;
+        }
+
+        if(command == Command.SESSION) // Tell the player how to take back their seat if their connection is lost
+        {
+            String session = this.session;
+            send(session != null ? Outbound.encode(SESSION + " " + session) : NO_RESPONSE);
+            return;
+        }
 
-                Server.broadcast(MESSAGE + " " + this.player.name() + " has left the game."); // Inform the others
+        if(command == Command.QUIT && state == State.SPECTATING) // A spectator stops watching
+        {
+            leave();
+            this.table.unwatch(this);
+            this.connection.close();
+            return;
+        }
 
-                break; // Break this connection
+        if(command == Command.QUIT) // If it is a quit message, the client quit unexpectedly
+        {
+            leave();
+            this.server.forget(this.session, this); // Leaving on purpose ends the session
+            Table table = this.table;
+            if(table == null) // The player left before they were given a seat
+                this.server.lobby().leave(this);
+            else
+            {
+                table.broadcast(MESSAGE + " " + this.player.name() + " has left the game."); // Inform the others
+                table.scoresChanged(); // The player is no longer on the high scores
             }
 
-            String response = parse(message); // Parse the message and get the response
-            send(response); // Send the response back to the client
+            this.connection.close(); // Break this connection
+            return;
+        }
+
+        if(command == Command.LEADERBOARD || command == Command.HISTORY) // Answered from the history of the server, seated or not
+        {
+            String argument = command.argument(line, length); // Taken before the line is reused
+            this.server.execute(() -> send(history(command, argument))); // Off the thread reading the connection, since the history is shared by every table
+            return;
+        }
+
+        if(command == Command.ODDS) // Worked out on the executor, since a shoe the cache has not seen takes a few milliseconds
+        {
+            Table table = this.table;
+            Supplier<byte[]> odds = table != null && state == State.AWAITING_DECISION ? table.odds(this) : null; // Only while the player is being asked
+            if(odds == null)
+                send(NO_RESPONSE);
+            else
+                this.server.execute(() -> send(odds.get()));
+            return;
         }
 
+        send(parse(command)); // Parse the message and send the response back to the client
+    }
+
+    /**
+     * Take back the seat of a player who lost their connection. The player is sent the lines broadcast at their table
+     * while they were gone, and plays again from the next time they are asked. A connection the server still thinks
+     * is alive is dropped in favour of the new one.
+     * @param token the session token the player asked for after introducing themselves
+     */
+    private void resume(String token)
+    {
+        Client previous = token == null ? null : this.server.session(token);
+        Table table = previous == null ? null : previous.table;
+        if(table == null || !this.server.resume(token, previous, this)) // Not a session, or not seated, or taken over by another connection
+        {
+            this.connection.close();
+            return;
+        }
+
+        previous.leaving.lock();
+        try
+        {
+            if(previous.leave() != State.DISCONNECTED) // The old connection is still open, so the player missed nothing before now
+                previous.missed = table.feed().next();
+            this.missed = previous.missed; // Still the lines missed, should this connection be lost too before it takes the seat
+        }
+        finally
+        {
+            previous.leaving.unlock();
+        }
+        previous.connection.close();
+
+        this.player = previous.player;
+        this.session = token;
+        if(!this.state.compareAndSet(State.CONNECTING, State.READY)) // The connection was lost meanwhile
+            return;
+
+        send(SESSION + " " + token);
+        if(!table.reattach(previous, this, this.missed)) // The game ended meanwhile
+            this.connection.close();
+    }
+
+    /**
+     * Follow the game at a table as a spectator. A spectator takes no seat and is sent the broadcasts of the table,
+     * skipping ahead if their connection falls behind rather than holding up the players.
+     * @param argument the id of the table
+     */
+    private void watch(String argument)
+    {
+        Table table = null;
         try
         {
-            this.socket.close(); // Close the socket
+            if(argument != null)
+                table = this.server.table(Integer.parseInt(argument));
         }
-        catch (Exception ignored)
+        catch (NumberFormatException ignored)
         {
 
         }
+
+        if(table == null) // Not a table on the server
+        {
+            this.connection.close();
+            return;
+        }
+
+        this.table = table;
+        if(this.state.compareAndSet(State.CONNECTING, State.SPECTATING)) // Unless the connection was lost meanwhile
+            table.watch(this);
     }
 
     /**
-     * Indicates if the user wants to deal another card
-     * @return true if the response was Deal and false otherwise
+     * Get the sequence number of the next line of the table's feed this spectator is sent
+     * @return the sequence number
      */
-    public boolean isDealing()
+    long watched()
     {
-        return this.deal;
+        return this.watched;
     }
 
     /**
-     * Indicates if the user wants to hold their current card
-     * @return true if the response was Hold and false otherwise
+     * Move on the next line of the table's feed this spectator is sent
+     * @param sequence the sequence number of the next line
      */
-    public boolean isHolding()
+    void watched(long sequence)
     {
-        return this.hold;
+        this.watched = sequence;
     }
 
     /**
-     * Indicates if the user is ready
-     * @return true if the user is ready for the game or false if otherwise
+     * Answer a question about the history of the server
+     * @param command either LEADERBOARD or HISTORY
+     * @param argument the number of players for LEADERBOARD or the name of the player for HISTORY, null for the default
+     * @return the encoded response, empty if the server keeps no history
      */
-    public boolean isReady()
+    private byte[] history(Command command, String argument)
     {
-        return this.ready;
+        History history = this.server.history();
+        if(history == null)
+            return NO_RESPONSE;
+
+        StringBuilder response = new StringBuilder();
+        if(command == Command.LEADERBOARD) // name:wins:rounds for each of the best players, best first
+        {
+            int count = 10;
+            try
+            {
+                if(argument != null)
+                    count = Math.min(Integer.parseInt(argument), 100);
+            }
+            catch (NumberFormatException ignored)
+            {
+
+            }
+
+            for(Standing standing : history.top(count))
+                response.append(standing.name()).append(':').append(standing.wins()).append(':').append(standing.rounds()).append(' ');
+        }
+        else // type:table:round:score:outcome for each of the latest entries, latest first
+        {
+            String name = argument != null ? argument : this.player != null ? this.player.name() : null;
+            if(name == null) // A spectator has no history of their own
+                return NO_RESPONSE;
+            for(Entry entry : history.history(name, 10))
+            {
+                int seat = entry.seat(name);
+                String outcome = entry.won(seat) ? "won" : entry.winner() == game.Result.DRAW ? "draw" : "lost";
+                response.append(entry.type() == Entry.ROUND ? "round" : "match").append(':').append(entry.table()).append(':')
+                        .append(entry.round()).append(':').append(entry.scores()[seat]).append(':').append(outcome).append(' ');
+            }
+        }
+        return Outbound.encode(response.toString().trim());
     }
 
     /**
-     * Resets the dealing and holding flags
+     * Ask the player whether they would like to deal another card or hold their current card
+     * @return a future completed with Deal or Hold as soon as the player answers
      */
-    public void clear()
+    public CompletableFuture<String> ask()
     {
-        this.deal = false;
-        this.hold = false;
+        CompletableFuture<String> decision = new CompletableFuture<>();
+        this.decision = decision; // Set before asking so an answer can never arrive ahead of it
+        if(!this.state.compareAndSet(State.READY, State.AWAITING_DECISION)) // A player who has left holds
+        {
+            decision.complete(HOLD);
+            return decision;
+        }
+
+        send(ASK); // Ask the connection
+        return decision;
+    }
+
+    /**
+     * Hold on behalf of a player who did not answer in time
+     * @return true if the player had not answered or false if they already had
+     */
+    public boolean expire()
+    {
+        if(!this.state.compareAndSet(State.AWAITING_DECISION, State.DECIDED))
+            return false;
+
+        this.decision.complete(HOLD);
+        return true;
+    }
+
+    /**
+     * Called by the table once it has taken the player's answer, so the player can be asked again
+     */
+    public void endTurn()
+    {
+        this.state.compareAndSet(State.DECIDED, State.READY);
+    }
+
+    /**
+     * Mark the player as gone, holding on their behalf if the dealer was waiting for them
+     * @return the state the player was in
+     */
+    private State leave()
+    {
+        State previous = this.state.getAndSet(State.DISCONNECTED);
+        if(previous == State.AWAITING_DECISION)
+            this.decision.complete(HOLD);
+        return previous;
+    }
+
+    /**
+     * Get where the player is in their lifecycle
+     * @return the state of the player
+     */
+    public State state()
+    {
+        return this.state.get();
+    }
+
+    /**
+     * Indicates if the user is ready
+     * @return true if the user is ready for the game or false if otherwise
+     */
+    @Override
+    public boolean isReady()
+    {
+        State state = this.state.get();
+        return state == State.READY || state == State.AWAITING_DECISION || state == State.DECIDED;
     }
 
     /**
      * Parse the messages received from the client
-     * @param message the data sent by the client
-     * @return the response of the server
+     * @param command the command sent by the client
+     * @return the encoded response of the server
      */
-    private String parse(String message)
+    private byte[] parse(Command command)
     {
-        StringBuilder response = new StringBuilder(); // Create an empty string builder
-        if(message.startsWith(ALL_NAMES)) // if the client wants the names of all the players in the server
+        if(this.table == null) // Not seated yet, so the questions are answered by the lobby
+            return lobby(command);
+
+        switch(command)
         {
-            Client[] players = Server.clients(); // get the connections from the server
-            for(int i = 0; i < players.length; ++i) // For each connection in the server
-            {
-                response.append(players[i].player().name()); // get the name and append it
-                if(i <= players.length - 1)
-                    response.append(" ");
-            }
+            case NAMES: // if the client wants the names of all the players at the table
+                return this.table.rosterLine();
+            case READY: // if the client is ready
+                this.state.compareAndSet(State.LOBBY, State.READY);
+                return NO_RESPONSE;
+            case CONNECTION: // if the client wants the number of available players
+                return this.table.statusLine(); // the number of players connected
+            case MAX_PLAYERS: // if the player wants the maximum number of players
+                return this.table.maxLine(); // the maximum players
+            case DEAL: // if the client responded with Deal
+                decide(DEAL); // Wake the table up with the decision
+                return NO_RESPONSE;
+            case HOLD: // if the client responded with Hold
+                decide(HOLD); // Wake the table up with the decision
+                return NO_RESPONSE;
+            default:
+                return NO_RESPONSE;
         }
-        else if(message.equals(READY)) // if the client is ready
-            this.ready = true; // Set the ready flag
-        else if(message.equals(CONNECTION_STATUS)) // if the client wants the number of available players
-            response.append(Server.status()); // append the number of players connected
-        else if(message.equals(MAX_PLAYERS)) // if the player wants the maximum number of players
-            response.append(Server.max()); // append the maximum players
-        else if(message.startsWith(DEAL)) // if the client responded with Deal
-            this.deal = true; // Set the dealing flag to true
-        else if(message.startsWith(HOLD)) // if the client responded with Hold
-            this.hold = true; // set the holding flag to true
-        return response.toString(); // return the response
     }
 
     /**
-     * Send a message to the client
-     * @param message the message to be sent
+     * Parse the messages received from a client waiting in the lobby
+     * @param command the command sent by the client
+     * @return the encoded response of the server
      */
-    public void send(String message)
+    private byte[] lobby(Command command)
     {
-        this.writer.println(message);
-        this.writer.flush();
+        Lobby lobby = this.server.lobby();
+        switch(command)
+        {
+            case NAMES: // the names of the players waiting for a seat
+                return Outbound.encode(lobby.names());
+            case READY: // Queue for a table
+                if(this.state.compareAndSet(State.LOBBY, State.READY))
+                    lobby.ready(this);
+                return NO_RESPONSE;
+            case CONNECTION: // the number of players waiting for a seat
+                return Outbound.encode(String.valueOf(lobby.size()));
+            case MAX_PLAYERS: // the maximum players on a table
+                return Outbound.encode(String.valueOf(lobby.max()));
+            default: // Nobody has asked the player anything yet
+                return NO_RESPONSE;
+        }
     }
 
     /**
-     * Receive a message from the client
-     * @return the message received from the client
+     * Called by the transport once the connection has been closed, whether by the client or the server
      */
-    public String receive()
+    public void disconnected()
     {
+        Table joined = this.table;
+        State previous;
+        this.leaving.lock();
         try
         {
-            return this.reader.readLine();
+            previous = leave();
+            if(previous == State.DISCONNECTED) // Already left, and the lines missed were taken down then
+                return;
+            if(joined != null) // The player misses everything broadcast from now on
+                this.missed = joined.feed().next();
+        }
+        finally
+        {
+            this.leaving.unlock();
         }
-        catch(IOException e)
+
+        if(previous == State.CONNECTING) // Never introduced themselves
+            return;
+
+        if(previous == State.SPECTATING) // Nobody is waiting on a spectator
+        {
+            joined.unwatch(this);
+            return;
+        }
+
+        Table table = this.table;
+        if(table == null) // Stop waiting for a seat, there is no seat to take back
         {
-            return "";
+            this.server.lobby().leave(this);
+            this.server.forget(this.session, this);
         }
+        else // The player is no longer on the high scores until they resume their session
+            table.scoresChanged();
+    }
+
+    /**
+     * Complete the decision the table is waiting for. Answers given when the player was not asked are rejected.
+     * @param choice the choice of the player, either Deal or Hold
+     */
+    private void decide(String choice)
+    {
+        if(this.state.compareAndSet(State.AWAITING_DECISION, State.DECIDED)) // Only one answer is taken, whether the player's or the timeout's
+            this.decision.complete(choice);
+    }
+
+    /**
+     * Send a message to the client
+     * @param message the message to be sent
+     */
+    public void send(String message)
+    {
+        this.connection.send(message);
+    }
+
+    /**
+     * Send an encoded line to the client
+     * @param line the line encoded by {@link Outbound#encode(String)}, which may be shared with other clients
+     */
+    public void send(byte[] line)
+    {
+        this.connection.send(line);
+    }
+
+    /**
+     * Get the bytes waiting to be written to the client
+     * @return the outbound backlog in bytes
+     */
+    public long backlog()
+    {
+        return this.connection.backlog();
+    }
+
+    /**
+     * Close the connection to the client once everything sent to it has been written
+     */
+    public void close()
+    {
+        this.connection.close();
+    }
+
+    /**
+     * Seat this connection at a table
+     * @param table the table the player will be playing at
+     */
+    public void join(Table table)
+    {
+        this.table = table;
+    }
+
+    /**
+     * Get the table this connection is seated at
+     * @return the table of the player
+     */
+    public Table table()
+    {
+        return this.table;
+    }
+
+    /**
+     * Get the token the player can resume their session with
+     * @return the session token or null if the player has not introduced themselves
+     */
+    public String session()
+    {
+        return this.session;
     }
 
     /**
      * Get the player this connection is encapsulating
      * @return the player object contained in this connection
      */
+    @Override
     public Player player()
     {
         return this.player;
@@ -0,0 +1,141 @@
+package dream;
+
+import java.nio.charset.StandardCharsets;
+
+import static game.Constants.*;
+
+/**
+ * This enum lists the commands a client can send, decoded straight from the bytes of a line.
+ * A line is matched on its first byte and then compared byte by byte with the command word, so no String is
+ * created for it. Only the name sent in the handshake is turned into a String.
+ */
+public enum Command
+{
+    NAME(PLAYER_NAME, false, true), // Name <player>, introduces the player
+    NAMES(ALL_NAMES, true, false), // The names of the players at the table
+    READY(game.Constants.READY, false, false), // The player is ready for the game to begin
+    CONNECTION(CONNECTION_STATUS, false, false), // The number of players at the table
+    MAX_PLAYERS(game.Constants.MAX_PLAYERS, false, false), // The maximum number of players at the table
+    DEAL(game.Constants.DEAL, true, false), // The player wants another card
+    HOLD(game.Constants.HOLD, true, false), // The player keeps their cards
+    QUIT(game.Constants.QUIT, false, false), // The player is leaving
+    RESUME(game.Constants.RESUME, false, true), // Resume <token>, takes back the seat of a player who lost their connection
+    SESSION(game.Constants.SESSION, false, false), // The token the player can resume their session with
+    WATCH(game.Constants.WATCH, false, true), // Watch <table>, follows the game at a table without taking a seat
+    PONG(game.Constants.PONG, false, false), // The answer to a Ping, showing the client is still there
+    ODDS(game.Constants.ODDS, false, false), // The chances of the player's Deal and Hold, while they are being asked
+    LEADERBOARD(game.Constants.LEADERBOARD, true, false), // Leaderboard [count], the best players on the server
+    HISTORY(game.Constants.HISTORY, true, false), // History [name], the latest rounds and matches of a player
+    UNKNOWN("Other", false, false); // Anything else
+
+    private final String word; // The word the command starts with
+    private final byte[] bytes; // The bytes of the word
+    private final boolean prefix; // Whether anything may follow the word, as the commands matched with startsWith always allowed
+    private final boolean argument; // Whether an argument may follow the word after a space, such as the name, the session token or the table
+
+    /**
+     * Create a command
+     * @param word the word the command starts with
+     * @param prefix whether anything may follow the word
+     * @param argument whether an argument may follow the word after a space
+     */
+    Command(String word, boolean prefix, boolean argument)
+    {
+        this.word = word;
+        this.bytes = word.getBytes(StandardCharsets.US_ASCII);
+        this.prefix = prefix;
+        this.argument = argument;
+    }
+
+    /**
+     * Get the word the command starts with
+     * @return the command word
+     */
+    public String word()
+    {
+        return this.word;
+    }
+
+    /**
+     * Decode the command of a line
+     * @param line the bytes of the line, without the line ending
+     * @param length the number of bytes in the line
+     * @return the command of the line, UNKNOWN if it is not a command
+     */
+    public static Command decode(byte[] line, int length)
+    {
+        if(length == 0)
+            return UNKNOWN;
+
+        switch(line[0]) // The first byte narrows the line down to at most two commands
+        {
+            case 'N':
+                if(NAMES.matches(line, length))
+                    return NAMES;
+                return NAME.matches(line, length) ? NAME : UNKNOWN;
+            case 'R':
+                if(READY.matches(line, length))
+                    return READY;
+                return RESUME.matches(line, length) ? RESUME : UNKNOWN;
+            case 'C':
+                return CONNECTION.matches(line, length) ? CONNECTION : UNKNOWN;
+            case 'M':
+                return MAX_PLAYERS.matches(line, length) ? MAX_PLAYERS : UNKNOWN;
+            case 'D':
+                return DEAL.matches(line, length) ? DEAL : UNKNOWN;
+            case 'H':
+                if(HOLD.matches(line, length))
+                    return HOLD;
+                return HISTORY.matches(line, length) ? HISTORY : UNKNOWN;
+            case 'L':
+                return LEADERBOARD.matches(line, length) ? LEADERBOARD : UNKNOWN;
+            case 'Q':
+                return QUIT.matches(line, length) ? QUIT : UNKNOWN;
+            case 'P':
+                return PONG.matches(line, length) ? PONG : UNKNOWN;
+            case 'W':
+                return WATCH.matches(line, length) ? WATCH : UNKNOWN;
+            case 'S':
+                return SESSION.matches(line, length) ? SESSION : UNKNOWN;
+            case 'O':
+                return ODDS.matches(line, length) ? ODDS : UNKNOWN;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    /**
+     * Check if a line is this command
+     * @param line the bytes of the line
+     * @param length the number of bytes in the line
+     * @return true if the line is this command or false if otherwise
+     */
+    private boolean matches(byte[] line, int length)
+    {
+        if(length < this.bytes.length)
+            return false;
+
+        for(int i = 1; i < this.bytes.length; ++i) // The first byte has already been matched
+            if(line[i] != this.bytes[i])
+                return false;
+
+        if(length == this.bytes.length || this.prefix)
+            return true;
+        return this.argument && line[this.bytes.length] == ' ';
+    }
+
+    /**
+     * Get the first word after the command word, such as the name of the player
+     * @param line the bytes of the line
+     * @param length the number of bytes in the line
+     * @return the argument of the command or null if there is none
+     */
+    public String argument(byte[] line, int length)
+    {
+        int start = this.bytes.length + 1;
+        int end = start;
+        while(end < length && line[end] != ' ')
+            ++end;
+        return end > start ? new String(line, start, end - start, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,48 @@
+package dream;
+
+/**
+ * This interface represents the link between the server and a single client, whatever transport carries it.
+ * Lines sent to the client are queued and written asynchronously, so sending never waits on a slow client.
+ */
+public interface Connection
+{
+    /**
+     * Send an encoded line to the client. The same bytes may be shared with other clients and must not be changed.
+     * @param line the line encoded by {@link Outbound#encode(String)}
+     */
+    void send(byte[] line);
+
+    /**
+     * Send a line of text to the client
+     * @param message the message to be sent
+     */
+    default void send(String message)
+    {
+        send(Outbound.encode(message));
+    }
+
+    /**
+     * Close the connection once everything already sent has been written
+     */
+    void close();
+
+    /**
+     * Close the connection straight away, dropping anything that was not written, such as when the client is evicted
+     */
+    default void abort()
+    {
+        close();
+    }
+
+    /**
+     * Get the address of the client on the other end of the connection
+     * @return the address of the client
+     */
+    String address();
+
+    /**
+     * Get the number of bytes sent to the client that have not been written yet
+     * @return the outbound backlog in bytes
+     */
+    long backlog();
+}
@@ -0,0 +1,179 @@
+package dream;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static game.Constants.*;
+
+/**
+ * This class keeps the read and write deadlines of the connections on the server, so a connection that has gone quiet
+ * or has stopped taking what is written to it cannot hold a thread or a seat for ever.
+ * A connection which has sent nothing for half the idle timeout is sent a Ping, and is evicted if it still sends nothing
+ * for the whole idle timeout. A connection with lines waiting which has not taken any of them for the write timeout is evicted.
+ * A write deadline measures how long the writes have stalled, not how many bytes are waiting or unacknowledged: every write
+ * the socket takes any bytes of counts as progress, so a slow client is only evicted once it stops taking anything at all,
+ * while the outbound limit bounds how much may wait for it.
+ * Every connection is checked from a single shared timing wheel rather than a timer or a sleeping thread of its own.
+ */
+public class Deadlines
+{
+    private static final LongAdder idleEvictions = new LongAdder(); // Connections evicted for sending nothing on the whole server
+    private static final LongAdder writeEvictions = new LongAdder(); // Connections evicted for taking nothing on the whole server
+
+    private final TimingWheel wheel; // The wheel checking every connection, null if there are no deadlines
+    private final long idle; // The nanoseconds a connection may send nothing, 0 for no read deadline
+    private final long write; // The nanoseconds a connection may take nothing while lines are waiting, 0 for no write deadline
+    private final long period; // The milliseconds between two checks of the same connection
+
+    /**
+     * Create the deadlines of the connections
+     * @param idleMillis the milliseconds a connection may send nothing before it is evicted, 0 for no read deadline
+     * @param writeMillis the milliseconds a connection may take nothing while lines are waiting before it is evicted, 0 for no write deadline
+     */
+    public Deadlines(long idleMillis, long writeMillis)
+    {
+        this.idle = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.write = TimeUnit.MILLISECONDS.toNanos(writeMillis);
+
+        long shortest = Math.min(idleMillis > 0 ? idleMillis / 2 : Long.MAX_VALUE, writeMillis > 0 ? writeMillis : Long.MAX_VALUE);
+        this.period = Math.max(shortest / 4, 100); // Checked a few times within the shortest deadline, so it is never missed by much
+        this.wheel = idleMillis > 0 || writeMillis > 0 ? new TimingWheel(100, 512, "Deadlines") : null;
+    }
+
+    /**
+     * Create the deadline of a connection, which is not checked until it is started
+     * @param connection the connection
+     * @return the deadline of the connection, which must be told whenever it reads or writes
+     */
+    public Deadline deadline(Connection connection)
+    {
+        return new Deadline(connection);
+    }
+
+    /**
+     * Get the number of connections evicted for sending nothing
+     * @return the number of evictions on the whole server
+     */
+    public static long idleEvictions()
+    {
+        return idleEvictions.sum();
+    }
+
+    /**
+     * Get the number of connections evicted for taking nothing that was written to them
+     * @return the number of evictions on the whole server
+     */
+    public static long writeEvictions()
+    {
+        return writeEvictions.sum();
+    }
+
+    /**
+     * This class follows a single connection, checked from the timing wheel until the connection is closed
+     */
+    public class Deadline implements Runnable
+    {
+        private final Connection connection; // The connection being followed
+        private volatile long read = System.nanoTime(); // When the connection last sent something
+        private volatile long progress = System.nanoTime(); // When the connection last took something that was written to it, or had nothing waiting
+        private boolean pinged = false; // Whether the connection has been sent a Ping since it last sent something, only used by the wheel
+        private volatile boolean stopped = false; // Whether the connection has been closed
+
+        /**
+         * Create the deadline of a connection
+         * @param connection the connection
+         */
+        private Deadline(Connection connection)
+        {
+            this.connection = connection;
+        }
+
+        /**
+         * Start checking the connection, once it has been fully created
+         */
+        public void start()
+        {
+            if(wheel != null)
+                wheel.schedule(this, period);
+        }
+
+        /**
+         * Called whenever the connection has sent something
+         */
+        public void read()
+        {
+            this.read = System.nanoTime();
+        }
+
+        /**
+         * Called whenever the connection has taken any bytes written to it, however few
+         */
+        public void wrote()
+        {
+            this.progress = System.nanoTime();
+        }
+
+        /**
+         * Stop checking the connection once it has been closed
+         */
+        public void stop()
+        {
+            this.stopped = true;
+        }
+
+        /**
+         * Check the connection, evicting it if it has missed a deadline, then check it again later
+         */
+        @Override
+        public void run()
+        {
+            if(this.stopped)
+                return;
+
+            long now = System.nanoTime();
+            if(write > 0)
+            {
+                if(this.connection.backlog() == 0) // Nothing waiting, so there is nothing for it to be late with
+                    this.progress = now;
+                else if(now - this.progress >= write)
+                {
+                    writeEvictions.increment();
+                    evict("took nothing that was written to it");
+                    return;
+                }
+            }
+
+            if(idle > 0)
+            {
+                long silent = now - this.read;
+                if(silent >= idle)
+                {
+                    idleEvictions.increment();
+                    evict("sent nothing");
+                    return;
+                }
+
+                if(silent < idle / 2) // It has sent something since it was pinged
+                    this.pinged = false;
+                else if(!this.pinged) // Give it a chance to show it is still there
+                {
+                    this.pinged = true;
+                    this.connection.send(PING);
+                }
+            }
+
+            wheel.schedule(this, period);
+        }
+
+        /**
+         * Close the connection straight away, dropping anything that was not written
+         * @param reason why the connection was evicted
+         */
+        private void evict(String reason)
+        {
+            this.stopped = true;
+            Log.log(Log.Level.WARN, 0, "evicted", "Evicted Client " + this.connection.address() + ", it " + reason);
+            this.connection.abort();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package dream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class runs a selector on a single thread and serves the reads and writes of every channel registered with it.
+ */
+public class EventLoop implements Runnable
+{
+    private final Selector selector; // The selector watching the channels of this loop
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>(); // Work handed to this loop by other threads
+    private final ByteBuffer readBuffer; // The buffer every channel of this loop is read into
+    private final BufferPool writeBuffers; // The pool the connections of this loop take their write buffers from
+
+    /**
+     * Create an event loop
+     * @param readBufferSize the size of the buffer channels are read into
+     * @param writeBuffers the pool of write buffers shared by the loops
+     * @throws IOException if the selector could not be opened
+     */
+    public EventLoop(int readBufferSize, BufferPool writeBuffers) throws IOException
+    {
+        this.selector = Selector.open();
+        this.readBuffer = ByteBuffer.allocateDirect(readBufferSize);
+        this.writeBuffers = writeBuffers;
+    }
+
+    /**
+     * Run a task on this loop's thread
+     * @param task the task to be run
+     */
+    public void execute(Runnable task)
+    {
+        this.tasks.offer(task);
+        this.selector.wakeup(); // Wake the selector up so the task does not wait for the next read
+    }
+
+    /**
+     * Register a connection with this loop so its channel is read from
+     * @param connection the connection to be registered
+     */
+    public void register(ChannelConnection connection)
+    {
+        execute(() ->
+        {
+            try
+            {
+                SelectionKey key = connection.channel().register(this.selector, SelectionKey.OP_READ, connection);
+                connection.registered(key);
+            }
+            catch (IOException e)
+            {
+                connection.closeNow();
+            }
+        });
+    }
+
+    /**
+     * Get the pool the connections of this loop take their write buffers from
+     * @return the pool of write buffers
+     */
+    public BufferPool writeBuffers()
+    {
+        return this.writeBuffers;
+    }
+
+    @Override
+    public void run()
+    {
+        while(this.selector.isOpen())
+        {
+            try
+            {
+                this.selector.select();
+            }
+            catch (IOException e)
+            {
+                Log.log(Log.Level.ERROR, 0, "loop", "An event loop stopped because its selector failed", e);
+                return;
+            }
+
+            Runnable task;
+            while((task = this.tasks.poll()) != null) // Run the work handed over by other threads
+            {
+                try
+                {
+                    task.run();
+                }
+                catch (RuntimeException ex) // A failed task must not stop the loop
+                {
+                    Log.log(Log.Level.ERROR, 0, "loop", "A task failed on an event loop", ex);
+                }
+            }
+
+            Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+            while(keys.hasNext())
+            {
+                SelectionKey key = keys.next();
+                keys.remove();
+
+                ChannelConnection connection = (ChannelConnection) key.attachment();
+                try
+                {
+                    if(key.isValid() && key.isReadable())
+                        read(connection);
+                    if(key.isValid() && key.isWritable())
+                        connection.flush();
+                }
+                catch (RuntimeException ex) // Only the connection that failed is closed, the others on the loop carry on
+                {
+                    Log.log(Log.Level.ERROR, 0, "loop", "Closed Client " + connection.address() + " after it failed", ex);
+                    connection.closeNow();
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the bytes waiting on a channel and hand the completed lines to the connection
+     * @param connection the connection whose channel is readable
+     */
+    private void read(ChannelConnection connection)
+    {
+        SocketChannel channel = connection.channel();
+        try
+        {
+            this.readBuffer.clear();
+            int read = channel.read(this.readBuffer);
+            if(read < 0) // The client closed the connection
+            {
+                connection.closeNow();
+                return;
+            }
+
+            this.readBuffer.flip();
+            if(!connection.decode(this.readBuffer)) // The client sent a line that was too long
+                connection.closeNow();
+        }
+        catch (IOException e)
+        {
+            connection.closeNow();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package dream;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class creates the executor that runs the connection loops and the game loops of the server.
+ * The server is built for Java 17, so virtual threads are only found at runtime, and asking for them on an older
+ * Java version stops the server as it starts rather than falling back to platform threads.
+ */
+public class Execution
+{
+    public static final String PLATFORM = "platform"; // Tasks run on a cached pool of platform threads, which reuses idle threads and starts new ones as needed
+    public static final String VIRTUAL = "virtual"; // Every task runs on its own virtual thread
+
+    /**
+     * Create the executor for an execution mode
+     * @param mode the name of the execution mode, either platform or virtual
+     * @return an executor that runs tasks on pooled platform threads, or on a new virtual thread for every task
+     * @throws Exception if there is no such mode or virtual threads are not available on this Java version
+     */
+    public static ExecutorService create(String mode) throws Exception
+    {
+        if(mode.equals(PLATFORM))
+            return Executors.newCachedThreadPool();
+
+        if(mode.equals(VIRTUAL))
+        {
+            if(Runtime.version().feature() < 21)
+                throw new Exception("Virtual Threads Need Java 21 Or Newer (running on Java " + Runtime.version().feature() + ")");
+
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); // Looked up at runtime since the server is built for Java 17
+            return (ExecutorService) factory.invoke(null);
+        }
+
+        throw new Exception("Unknown Execution Mode: " + mode + " (expected " + PLATFORM + " or " + VIRTUAL + ")");
+    }
+}
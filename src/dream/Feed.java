@@ -0,0 +1,103 @@
+package dream;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * This class keeps the latest lines broadcast at a table in a ring, so a player who lost their connection can be
+ * sent what they missed when they come back. Every line gets the next sequence number and overwrites the line
+ * a whole ring before it, so the memory a table holds on to is bounded however long its game runs.
+ * Lines are published and read without a lock, a reader simply skips a slot that has already been overwritten.
+ */
+public class Feed
+{
+    /**
+     * A line in the ring along with its sequence number, so a reader can tell if the slot has been overwritten
+     * @param sequence the sequence number of the line
+     * @param line the encoded line
+     */
+    private record Slot(long sequence, byte[] line)
+    {
+    }
+
+    private final AtomicReferenceArray<Slot> slots; // The ring of lines
+    private final int mask; // The capacity minus one, the capacity is a power of two
+    private final AtomicLong next = new AtomicLong(); // The sequence number of the next line
+
+    /**
+     * Create a feed
+     * @param capacity the number of lines kept, rounded up to a power of two
+     */
+    public Feed(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Add a line to the feed
+     * @param line the encoded line, which is never changed afterwards
+     * @return the sequence number of the line
+     */
+    public long publish(byte[] line)
+    {
+        long sequence = this.next.getAndIncrement();
+        this.slots.set((int) sequence & this.mask, new Slot(sequence, line));
+        return sequence;
+    }
+
+    /**
+     * Get the sequence number the next line will be given
+     * @return the sequence number of the next line
+     */
+    public long next()
+    {
+        return this.next.get();
+    }
+
+    /**
+     * Read the lines published from a sequence number on, skipping over the lines which have already been overwritten
+     * @param from the sequence number of the first line wanted
+     * @param lines the consumer of every line read, in order
+     * @return the sequence number of the first line not read yet
+     */
+    public long follow(long from, Consumer<byte[]> lines)
+    {
+        long end = this.next.get();
+        for(long sequence = Math.max(from, end - this.slots.length()); sequence < end; ++sequence)
+        {
+            Slot slot = this.slots.get((int) sequence & this.mask);
+            if(slot == null || slot.sequence() < sequence) // Not written yet, so stop here and pick it up next time
+                return sequence;
+            if(slot.sequence() == sequence)
+                lines.accept(slot.line());
+        }
+        return end;
+    }
+
+    /**
+     * Read the lines published from a sequence number on
+     * @param from the sequence number of the first line wanted
+     * @param lines the consumer of every line still in the ring, in order
+     * @return true if every line from the sequence number on was read or false if some had already been overwritten
+     */
+    public boolean read(long from, Consumer<byte[]> lines)
+    {
+        long end = this.next.get();
+        long start = Math.max(from, end - this.slots.length());
+        boolean complete = start == from;
+        for(long sequence = start; sequence < end; ++sequence)
+        {
+            Slot slot = this.slots.get((int) sequence & this.mask);
+            if(slot == null || slot.sequence() != sequence) // Not written yet, or overwritten meanwhile
+            {
+                complete = complete && (slot == null || slot.sequence() < sequence);
+                continue;
+            }
+            lines.accept(slot.line());
+        }
+        return complete;
+    }
+}
@@ -0,0 +1,118 @@
+package dream;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records a distribution of durations without locks.
+ * Every power of two is split into 8 buckets, so a percentile is reported to within an eighth of its value.
+ */
+public class Histogram
+{
+    private static final int SUB_BITS = 3; // Each power of two is split into 2^SUB_BITS buckets
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS); // The number of values recorded in each bucket
+    private final LongAdder count = new LongAdder(); // The number of values recorded
+    private final LongAdder sum = new LongAdder(); // The total of the values recorded
+    private final AtomicLong max = new AtomicLong(); // The largest value recorded
+
+    /**
+     * Record a value
+     * @param nanoseconds the duration to be recorded, negative durations are recorded as 0
+     */
+    public void record(long nanoseconds)
+    {
+        long value = Math.max(0, nanoseconds);
+        this.buckets.incrementAndGet(index(value));
+        this.count.increment();
+        this.sum.add(value);
+
+        long current;
+        while(value > (current = this.max.get()) && !this.max.compareAndSet(current, value)) // Only contended when the maximum changes
+            ;
+    }
+
+    /**
+     * Get the bucket a value falls in
+     * @param value the value
+     * @return the index of the bucket
+     */
+    private static int index(long value)
+    {
+        if(value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Get the largest value that falls in a bucket
+     * @param index the index of the bucket
+     * @return the upper bound of the bucket
+     */
+    private static long upperBound(int index)
+    {
+        if(index < SUB_BUCKETS)
+            return index;
+
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Get the number of values recorded
+     * @return the count
+     */
+    public long count()
+    {
+        return this.count.sum();
+    }
+
+    /**
+     * Get the total of the values recorded
+     * @return the sum in nanoseconds
+     */
+    public long sum()
+    {
+        return this.sum.sum();
+    }
+
+    /**
+     * Get the largest value recorded
+     * @return the maximum in nanoseconds
+     */
+    public long max()
+    {
+        return this.max.get();
+    }
+
+    /**
+     * Get a percentile of the values recorded
+     * @param fraction the percentile as a fraction between 0 and 1
+     * @return the upper bound of the bucket the percentile falls in, in nanoseconds
+     */
+    public long percentile(double fraction)
+    {
+        long total = 0;
+        for(int i = 0; i < this.buckets.length(); ++i)
+            total += this.buckets.get(i);
+        if(total == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for(int i = 0; i < this.buckets.length(); ++i)
+        {
+            seen += this.buckets.get(i);
+            if(seen >= rank)
+                return Math.min(upperBound(i), max());
+        }
+        return max();
+    }
+}
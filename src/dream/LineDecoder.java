@@ -0,0 +1,67 @@
+package dream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class splits the bytes read from a connection into lines.
+ * Bytes of a line that has not been completed yet are kept until the rest of it arrives.
+ * Lines are handed over as bytes, so nothing is allocated for a line unless its handler needs to.
+ */
+public class LineDecoder
+{
+    /**
+     * Receives the lines completed by a decoder
+     */
+    public interface Handler
+    {
+        /**
+         * Handle a completed line. The bytes are reused for the next line once this returns.
+         * @param line the bytes of the line, without the line ending
+         * @param length the number of bytes in the line
+         */
+        void handle(byte[] line, int length);
+    }
+
+    private final int maxLineLength; // The longest line a client is allowed to send
+    private byte[] line = new byte[64]; // The bytes of the line being decoded
+    private int length = 0; // The number of bytes of the line received so far
+
+    /**
+     * Create a line decoder
+     * @param maxLineLength the longest line a client is allowed to send
+     */
+    public LineDecoder(int maxLineLength)
+    {
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Decode all the bytes in a buffer, handing every completed line to the handler
+     * @param buffer the buffer holding the bytes that were read
+     * @param lines the handler of the completed lines
+     * @return false if a line was longer than allowed or true if otherwise
+     */
+    public boolean decode(ByteBuffer buffer, Handler lines)
+    {
+        while(buffer.hasRemaining())
+        {
+            byte b = buffer.get();
+            if(b == '\n') // The end of a line, strip a trailing carriage return and hand it over
+            {
+                int end = (this.length > 0 && this.line[this.length - 1] == '\r') ? this.length - 1 : this.length;
+                this.length = 0;
+                lines.handle(this.line, end);
+                continue;
+            }
+
+            if(this.length == this.maxLineLength)
+                return false;
+
+            if(this.length == this.line.length) // Grow the line if it does not fit
+                this.line = Arrays.copyOf(this.line, Math.min(this.line.length * 2, this.maxLineLength));
+            this.line[this.length++] = b;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,259 @@
+package dream;
+
+import game.Strategy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class holds the players who have introduced themselves but have not been given a seat yet.
+ * Players are matched to a new table as soon as enough of them are ready. A player who has been ready for longer
+ * than the fill timeout is seated with whoever else is ready, and any empty seats are taken by bots if the server
+ * has been asked to fill them. A player who never becomes ready never holds up a table.
+ */
+public class Lobby
+{
+    private final Server server; // The server the tables are opened on
+    private final int maxPlayers; // The number of players on a full table
+    private final long fillTimeout; // The milliseconds a ready player waits for a full table, 0 to wait forever
+    private final Strategy bots; // How the bots filling empty seats play, null to leave the seats empty
+
+    private final List<Client> waiting = new ArrayList<>(); // The players who are not ready yet, in the order they arrived
+    private final ArrayDeque<Ready> ready = new ArrayDeque<>(); // The players who are ready, in the order they became ready
+    private final ReentrantLock lock = new ReentrantLock(); // Guards the waiting and ready players, the bot count and whether the fill timer is running
+    private int botCount = 0; // The number of bots created so far, used for their names
+    private boolean filling = false; // Whether the fill timer is running, so it is only ever scheduled once
+
+    /**
+     * A player waiting for a table
+     * @param client the connection of the player
+     * @param since when the player became ready, from System.nanoTime
+     */
+    private record Ready(Client client, long since)
+    {
+    }
+
+    /**
+     * Create a lobby
+     * @param server the server the tables are opened on
+     * @param maxPlayers the number of players on a full table
+     * @param fillTimeout the milliseconds a ready player waits for a full table, 0 to wait forever
+     * @param bots how the bots filling empty seats play, or null to leave the seats empty
+     */
+    public Lobby(Server server, int maxPlayers, long fillTimeout, Strategy bots)
+    {
+        this.server = server;
+        this.maxPlayers = maxPlayers;
+        this.fillTimeout = fillTimeout;
+        this.bots = bots;
+    }
+
+    /**
+     * Let a player into the lobby once they have introduced themselves
+     * @param client the connection of the player
+     */
+    public void enter(Client client)
+    {
+        this.lock.lock();
+        try
+        {
+            this.waiting.add(client);
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a player for a table once they are ready, opening a table if enough players are ready
+     * @param client the connection of the player
+     */
+    public void ready(Client client)
+    {
+        List<Client[]> tables = new ArrayList<>();
+        boolean startTimer;
+
+        this.lock.lock();
+        try
+        {
+            if(!this.waiting.remove(client)) // The player already left or is already queued
+                return;
+
+            this.ready.add(new Ready(client, System.nanoTime()));
+            while(this.ready.size() >= this.maxPlayers) // Open a table for every full set of ready players
+                tables.add(take(this.maxPlayers));
+
+            startTimer = this.fillTimeout > 0 && !this.ready.isEmpty() && !this.filling; // A player is left waiting for a full table
+            if(startTimer)
+                this.filling = true;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        for(Client[] players : tables) // Open the tables outside the lock, and off the thread reading the connection since the journal waits for the disk
+            this.server.execute(() -> this.server.open(players));
+
+        if(startTimer)
+            this.server.schedule(this::fill, this.fillTimeout);
+    }
+
+    /**
+     * Remove a player who left before they were given a seat
+     * @param client the connection of the player
+     */
+    public void leave(Client client)
+    {
+        this.lock.lock();
+        try
+        {
+            if(this.waiting.remove(client))
+                return;
+
+            for(Iterator<Ready> players = this.ready.iterator(); players.hasNext(); )
+            {
+                if(players.next().client() == client)
+                {
+                    players.remove();
+                    return;
+                }
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Seat the players who have waited longer than the fill timeout, then check again when the next player runs out of time
+     */
+    private void fill()
+    {
+        Client[] players = null;
+        long next = -1;
+
+        this.lock.lock();
+        try
+        {
+            Ready oldest = this.ready.peek();
+            if(oldest != null)
+            {
+                long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.since());
+                if(waited >= this.fillTimeout) // The oldest player has waited long enough, so seat everyone who is ready
+                {
+                    players = take(Math.min(this.ready.size(), this.maxPlayers));
+                    oldest = this.ready.peek();
+                }
+
+                if(oldest != null) // Check again when the next player runs out of time
+                    next = Math.max(1, this.fillTimeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.since()));
+            }
+            this.filling = next > 0;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        if(players != null) // Opened off the timer thread, since the journal waits for the disk
+        {
+            Client[] seated = fillWithBots(players);
+            this.server.execute(() -> this.server.open(seated));
+        }
+        if(next > 0)
+            this.server.schedule(this::fill, next);
+    }
+
+    /**
+     * Take players off the front of the ready queue. The lock must be held.
+     * @param count the number of players to take
+     * @return the players, in the order they became ready
+     */
+    private Client[] take(int count)
+    {
+        Client[] players = new Client[count];
+        for(int i = 0; i < count; ++i)
+            players[i] = this.ready.poll().client();
+        return players;
+    }
+
+    /**
+     * Fill the empty seats of a table with bots, if the server has been asked to
+     * @param players the players taking a seat
+     * @return the players together with the bots
+     */
+    private Client[] fillWithBots(Client[] players)
+    {
+        if(this.bots == null || players.length == this.maxPlayers)
+            return players;
+
+        Client[] seated = Arrays.copyOf(players, this.maxPlayers);
+        this.lock.lock();
+        try
+        {
+            for(int i = players.length; i < seated.length; ++i)
+                seated[i] = Client.bot("Bot" + (++this.botCount), this.bots, this.server);
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+        return seated;
+    }
+
+    /**
+     * Get the names of the players in the lobby
+     * @return the names followed by a space, in the same form as the names of the players at a table
+     */
+    public String names()
+    {
+        StringBuilder names = new StringBuilder();
+        this.lock.lock();
+        try
+        {
+            for(Client client : this.waiting)
+                names.append(client.player().name()).append(" ");
+            for(Ready player : this.ready)
+                names.append(player.client().player().name()).append(" ");
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+        return names.toString();
+    }
+
+    /**
+     * Get the number of players on a full table
+     * @return the maximum players on a table
+     */
+    public int max()
+    {
+        return this.maxPlayers;
+    }
+
+    /**
+     * Get the number of players in the lobby
+     * @return the number of players waiting for a seat
+     */
+    public int size()
+    {
+        this.lock.lock();
+        try
+        {
+            return this.waiting.size() + this.ready.size();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package dream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * This class logs what happens on the server as structured records, without ever holding up a table.
+ * Logging a record only puts it in a lock free ring, and a single background thread takes the records out in batches
+ * and writes them, either as lines of text with their level and event to the console or as JSON lines to a rolling file. A record that finds the ring full
+ * is dropped and counted rather than waiting for room.
+ * Records below the level are never created, and below WARN only the records of one table in every sample are kept.
+ */
+public class Log
+{
+    /**
+     * How much a record matters, from the least to the most
+     */
+    public enum Level
+    {
+        DEBUG, // Every line broadcast at a table
+        INFO, // Tables, rounds and connections coming and going
+        WARN, // Clients evicted and games interrupted
+        ERROR // Something went wrong on the server
+    }
+
+    /**
+     * A record waiting in the ring
+     * @param time when it was logged, in milliseconds since the epoch
+     * @param level how much it matters
+     * @param table the id of the table it is about, 0 if it is about the whole server
+     * @param event the kind of record, a single lower case word
+     * @param message the text of the record
+     */
+    private record Entry(long time, Level level, int table, String event, String message)
+    {
+    }
+
+    private static final int CAPACITY = 16384; // The records the ring holds, a power of two
+    private static final long IDLE = TimeUnit.MILLISECONDS.toNanos(5); // How long the writer sleeps when the ring is empty
+
+    private static final Entry[] entries = new Entry[CAPACITY]; // The ring of records, published through their sequence numbers
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY); // What each slot expects next, the claim it is free for or the claim plus one once filled
+    private static final AtomicLong claimed = new AtomicLong(); // The number of slots claimed by the threads logging
+    private static long taken = 0; // The number of records taken out of the ring, only used while holding the writing lock
+    private static final ReentrantLock writing = new ReentrantLock(); // Lets a single thread at a time take records out of the ring
+    private static final LongAdder dropped = new LongAdder(); // Records dropped because the ring was full
+
+    private static volatile Level level = Level.INFO; // The least a record must matter to be logged
+    private static volatile int sample = 1; // Below WARN, only one table in this many is logged
+    private static volatile Sink sink = null; // The rolling file, null to write to the console
+
+    static
+    {
+        for(int i = 0; i < CAPACITY; ++i)
+            sequences.set(i, i);
+
+        Thread writer = new Thread(Log::write, "Log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::drain)); // Write whatever is still in the ring before the server stops
+    }
+
+    /**
+     * Get the level with the given name
+     * @param name the name of the level, either debug, info, warn or error
+     * @return the level
+     * @throws Exception if there is no level with that name
+     */
+    public static Level level(String name) throws Exception
+    {
+        for(Level level : Level.values())
+        {
+            if(level.name().equalsIgnoreCase(name))
+                return level;
+        }
+        throw new Exception("Unknown Log Level: " + name + " (expected debug, info, warn or error)");
+    }
+
+    /**
+     * Set what is logged and where it goes
+     * @param level the least a record must matter to be logged
+     * @param sample below WARN, only one table in this many is logged
+     * @param directory the directory of the rolling files, or null to log to the console
+     * @param fileBytes the size a file grows to before the log rolls on to the next one
+     * @param files the number of files kept, 0 to keep them all
+     * @throws IOException if the first file could not be opened
+     */
+    public static void configure(Level level, int sample, Path directory, long fileBytes, int files) throws IOException
+    {
+        Sink opened = directory == null ? null : new Sink(directory, fileBytes, files);
+        writing.lock();
+        try
+        {
+            Log.level = level;
+            Log.sample = sample;
+            Log.sink = opened;
+        }
+        finally
+        {
+            writing.unlock();
+        }
+    }
+
+    /**
+     * Check if a record would be logged, so a caller can skip building its message
+     * @param level how much the record matters
+     * @param table the id of the table it is about, 0 if it is about the whole server
+     * @return true if the record would be logged or false if otherwise
+     */
+    public static boolean enabled(Level level, int table)
+    {
+        if(level.compareTo(Log.level) < 0)
+            return false;
+        return table <= 0 || level.compareTo(Level.WARN) >= 0 || (table - 1) % Log.sample == 0; // The first table is always in the sample
+    }
+
+    /**
+     * Log a record about the whole server at INFO
+     * @param event the kind of record, a single lower case word
+     * @param message the text of the record
+     */
+    public static void info(String event, String message)
+    {
+        log(Level.INFO, 0, event, message);
+    }
+
+    /**
+     * Log a record. It is written in the background, or dropped if the ring is full.
+     * @param level how much the record matters
+     * @param table the id of the table it is about, 0 if it is about the whole server
+     * @param event the kind of record, a single lower case word
+     * @param message the text of the record
+     */
+    public static void log(Level level, int table, String event, String message)
+    {
+        if(!enabled(level, table))
+            return;
+
+        Entry entry = new Entry(System.currentTimeMillis(), level, table, event, message);
+        while(true)
+        {
+            long claim = claimed.get();
+            int slot = (int) claim & (CAPACITY - 1);
+            long sequence = sequences.get(slot);
+            if(sequence < claim) // The writer has not taken the record a whole ring before, so the ring is full
+            {
+                dropped.increment();
+                return;
+            }
+
+            if(sequence == claim && claimed.compareAndSet(claim, claim + 1))
+            {
+                entries[slot] = entry;
+                sequences.set(slot, claim + 1); // Publishes the record to the writer
+                return;
+            }
+        }
+    }
+
+    /**
+     * Log a record about something that went wrong, along with the stack trace of what was thrown
+     * @param level how much the record matters
+     * @param table the id of the table it is about, 0 if it is about the whole server
+     * @param event the kind of record, a single lower case word
+     * @param message the text of the record
+     * @param thrown what was thrown
+     */
+    public static void log(Level level, int table, String event, String message, Throwable thrown)
+    {
+        if(!enabled(level, table))
+            return;
+
+        StringWriter trace = new StringWriter();
+        thrown.printStackTrace(new PrintWriter(trace));
+        log(level, table, event, message + ": " + trace.toString().trim());
+    }
+
+    /**
+     * Get the number of records dropped because the writer could not keep up
+     * @return the number of records dropped on the whole server
+     */
+    public static long dropped()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Write the records in batches until the server stops, sleeping for a moment whenever the ring is empty
+     */
+    private static void write()
+    {
+        while(true)
+        {
+            if(!drain())
+                LockSupport.parkNanos(IDLE);
+        }
+    }
+
+    /**
+     * Take every record out of the ring and write them as a single batch
+     * @return true if any record was written or false if the ring was empty
+     */
+    private static boolean drain()
+    {
+        writing.lock();
+        try
+        {
+            StringBuilder batch = new StringBuilder();
+            Sink sink = Log.sink;
+            Entry entry;
+            int count = 0;
+            while((entry = poll()) != null)
+            {
+                ++count;
+                if(sink == null)
+                    text(batch, entry);
+                else
+                    sink.write(json(entry));
+            }
+
+            if(count == 0)
+                return false;
+            if(sink == null)
+            {
+                System.out.print(batch); // One write to the console for the whole batch
+                System.out.flush();
+            }
+            else
+                sink.flush();
+            return true;
+        }
+        catch (IOException | UncheckedIOException ex)
+        {
+            ex.printStackTrace(); // The log cannot log its own failure
+            return true;
+        }
+        finally
+        {
+            writing.unlock();
+        }
+    }
+
+    /**
+     * Take the next record out of the ring. Only called while holding the writing lock.
+     * @return the next record or null if the ring is empty, or the next record has been claimed but not filled yet
+     */
+    private static Entry poll()
+    {
+        int slot = (int) taken & (CAPACITY - 1);
+        if(sequences.get(slot) != taken + 1)
+            return null;
+
+        Entry entry = entries[slot];
+        entries[slot] = null;
+        sequences.set(slot, taken + CAPACITY); // Free for the claim a whole ring later
+        ++taken;
+        return entry;
+    }
+
+    /**
+     * Write a record as a line of text for the console, such as "WARN [evicted] Evicted Client /127.0.0.1, it sent nothing"
+     * @param batch the text being written
+     * @param entry the record
+     */
+    private static void text(StringBuilder batch, Entry entry)
+    {
+        batch.append(entry.level()).append(" [").append(entry.event()).append("] ").append(entry.message()).append(System.lineSeparator());
+    }
+
+    /**
+     * Write a record as a line of JSON
+     * @param entry the record
+     * @return the JSON object, with its line ending
+     */
+    private static String json(Entry entry)
+    {
+        StringBuilder json = new StringBuilder(96 + entry.message().length());
+        json.append("{\"time\":\"").append(Instant.ofEpochMilli(entry.time())).append("\",\"level\":\"").append(entry.level()).append('"');
+        if(entry.table() > 0)
+            json.append(",\"table\":").append(entry.table());
+        json.append(",\"event\":");
+        quote(json, entry.event());
+        json.append(",\"message\":");
+        quote(json, entry.message());
+        return json.append("}\n").toString();
+    }
+
+    /**
+     * Add a string to JSON as a quoted and escaped value
+     * @param json the JSON being built
+     * @param value the string
+     */
+    private static void quote(StringBuilder json, String value)
+    {
+        json.append('"');
+        for(int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if(c < 0x20)
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        json.append('"');
+    }
+
+    /**
+     * This class is the rolling file the log is written to. A new file is started each time the server starts and
+     * whenever the current one is full, and every file older than the number kept is deleted.
+     */
+    private static class Sink
+    {
+        private final Path directory; // The directory of the files
+        private final long limit; // The size a file grows to before the next one is started
+        private final int keep; // The number of files kept, 0 to keep them all
+        private int index; // The number of the current file
+        private OutputStream out; // The current file
+        private long size = 0; // The bytes written to the current file, once encoded
+
+        /**
+         * Start a new file after the ones already in the directory
+         * @param directory the directory of the files
+         * @param limit the size a file grows to before the next one is started
+         * @param keep the number of files kept, 0 to keep them all
+         * @throws IOException if the file could not be opened
+         */
+        private Sink(Path directory, long limit, int keep) throws IOException
+        {
+            Files.createDirectories(directory);
+            this.directory = directory;
+            this.limit = limit;
+            this.keep = keep;
+
+            int last = 0;
+            try(Stream<Path> files = Files.list(directory))
+            {
+                for(Path file : (Iterable<Path>) files::iterator)
+                {
+                    String name = file.getFileName().toString();
+                    if(name.matches("server-\\d{8}\\.jsonl"))
+                        last = Math.max(last, Integer.parseInt(name.substring(7, 15)));
+                }
+            }
+            this.index = last;
+            roll();
+        }
+
+        /**
+         * Get a file of the log
+         * @param index the number of the file
+         * @return the path of the file
+         */
+        private Path path(int index)
+        {
+            return this.directory.resolve(String.format("server-%08d.jsonl", index));
+        }
+
+        /**
+         * Write a line, rolling on to the next file first if it would not fit
+         * @param line the line, with its line ending
+         * @throws IOException if the line could not be written
+         */
+        private void write(String line) throws IOException
+        {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            if(this.size > 0 && this.size + bytes.length > this.limit)
+                roll();
+            this.out.write(bytes);
+            this.size += bytes.length;
+        }
+
+        /**
+         * Hand the lines written so far to the file
+         * @throws IOException if the file could not be written to
+         */
+        private void flush() throws IOException
+        {
+            this.out.flush();
+        }
+
+        /**
+         * Close the current file and start the next one, deleting the oldest files if too many are kept
+         * @throws IOException if the next file could not be opened
+         */
+        private void roll() throws IOException
+        {
+            if(this.out != null)
+                this.out.close();
+
+            ++this.index;
+            this.out = new BufferedOutputStream(Files.newOutputStream(path(this.index), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE));
+            this.size = 0;
+
+            if(this.keep > 0)
+                prune(this.index - this.keep);
+        }
+
+        /**
+         * Delete every file up to a number, including the ones left by earlier runs that kept more files
+         * @param last the number of the last file deleted
+         * @throws IOException if the directory could not be read or a file could not be deleted
+         */
+        private void prune(int last) throws IOException
+        {
+            try(Stream<Path> files = Files.list(this.directory))
+            {
+                for(Path file : (Iterable<Path>) files::iterator)
+                {
+                    String name = file.getFileName().toString();
+                    if(name.matches("server-\\d{8}\\.jsonl") && Integer.parseInt(name.substring(7, 15)) <= last)
+                        Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
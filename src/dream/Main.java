@@ -2,11 +2,12 @@ package dream;
 
 public class Main
 {
+    private static final String USAGE = "Proper Arguments: IP_Address Port Maximum_Players Rounds [--transport=blocking|nio] [--loops=Event_Loops] [--threads=platform|virtual] [--turn-timeout=Seconds] [--pacing=human|fast|zero] [--outbound-limit=Kilobytes] [--outbound-policy=drop|disconnect|coalesce] [--idle-timeout=Seconds] [--write-timeout=Seconds] [--seed=Number] [--decks=1-8] [--penetration=Percent] [--fill-timeout=Seconds] [--bots=hold|standN] [--history=Directory] [--history-segments=Count] [--journal=Directory] [--metrics-port=Port] [--log=Directory] [--log-level=debug|info|warn|error] [--log-sample=Tables] [--log-size=Megabytes] [--log-files=Count]";
 
     public static void main(String[] args) throws Exception
     {
-        if(args.length != 4)
-            throw new Exception("Proper Arguments: IP_Address Port Maximum_Players Rounds");
+        if(args.length < 4)
+            throw new Exception(USAGE);
 
         String address = args[0];
         int port, maxPlayers, rounds;
@@ -22,6 +23,6 @@ public class Main
             throw new Exception("Illegal Integer Values For Port, Maximum_Players or Rounds");
         }
 
-	    Server.startServer(address, port, maxPlayers, rounds); // Start the server
+	    Server.startServer(address, port, maxPlayers, rounds, Options.parse(args, 4, Options.SERVER, USAGE)); // Start the server
     }
 }
@@ -0,0 +1,310 @@
+package dream;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+/**
+ * This class collects the server's runtime metrics.
+ * The hot paths only add to striped counters and lock free histograms; gauges such as the outbound backlog are
+ * sampled from the tables when the metrics are read. The metrics are published over JMX and, when a port is given,
+ * as plain text on the loopback address.
+ */
+public class Metrics implements MetricsMXBean
+{
+    private static final LongAdder connections = new LongAdder(); // Connections accepted on the whole server
+    private static final LongAdder[] commands = commands(); // Messages received on the whole server, indexed by command
+    private static final Histogram broadcasts = new Histogram(); // The time taken to hand a broadcast to every client at a table
+    private static final Histogram decisions = new Histogram(); // The time the tables wait for a player to deal or hold
+    private static final Histogram rounds = new Histogram(); // The time taken to play a round
+
+    private final Server server; // The server whose tables are sampled
+
+    /**
+     * Create the metrics of a server
+     * @param server the server whose tables are sampled
+     */
+    private Metrics(Server server)
+    {
+        this.server = server;
+    }
+
+    /**
+     * Create a counter for each command a client can send
+     * @return the counters, in the order of the commands
+     */
+    private static LongAdder[] commands()
+    {
+        LongAdder[] commands = new LongAdder[Command.values().length];
+        for(int i = 0; i < commands.length; ++i)
+            commands[i] = new LongAdder();
+        return commands;
+    }
+
+    /**
+     * Publish the metrics of a server over JMX and, if a port is given, over plain text
+     * @param server the server whose metrics are published
+     * @param port the loopback port the metrics are served on, 0 for none
+     * @throws Exception if the metrics could not be published
+     */
+    public static void publish(Server server, int port) throws Exception
+    {
+        Metrics metrics = new Metrics(server);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("dream:type=Metrics"));
+
+        if(port <= 0)
+            return;
+
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/metrics", exchange -> {
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream out = exchange.getResponseBody())
+            {
+                out.write(body);
+            }
+        });
+        http.start(); // Served on its own thread, away from the tables
+        Log.info("metrics", "Metrics are served on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port + "/metrics");
+    }
+
+    /**
+     * Count a connection accepted by a transport
+     */
+    public static void accepted()
+    {
+        connections.increment();
+    }
+
+    /**
+     * Count a message received from a client
+     * @param command the command of the message
+     */
+    public static void received(Command command)
+    {
+        commands[command.ordinal()].increment();
+    }
+
+    /**
+     * Record the time taken to hand a broadcast to every client at a table
+     * @param nanoseconds the duration of the broadcast
+     */
+    public static void broadcast(long nanoseconds)
+    {
+        broadcasts.record(nanoseconds);
+    }
+
+    /**
+     * Record the time a table waited for a player to deal or hold
+     * @param nanoseconds the duration of the wait
+     */
+    public static void decision(long nanoseconds)
+    {
+        decisions.record(nanoseconds);
+    }
+
+    /**
+     * Record the time taken to play a round
+     * @param nanoseconds the duration of the round
+     */
+    public static void round(long nanoseconds)
+    {
+        rounds.record(nanoseconds);
+    }
+
+    /**
+     * Write every metric in plain text, one value per line
+     * @return the text form of the metrics
+     */
+    String scrape()
+    {
+        StringBuilder text = new StringBuilder();
+        line(text, "pontoon_connections_accepted_total", "", getConnectionsAccepted());
+        for(Command command : Command.values())
+            line(text, "pontoon_commands_received_total", "{command=\"" + command.word() + "\"}", commands[command.ordinal()].sum());
+        line(text, "pontoon_tables", "", getTables());
+        line(text, "pontoon_clients", "", getClients());
+        line(text, "pontoon_spectators", "", getSpectators());
+        line(text, "pontoon_outbound_backlog_bytes", "", getOutboundBacklogBytes());
+        line(text, "pontoon_outbound_backlog_max_bytes", "", getOutboundBacklogMaxBytes());
+        line(text, "pontoon_outbound_dropped_lines_total", "", getOutboundDroppedLines());
+        line(text, "pontoon_outbound_coalesced_lines_total", "", getOutboundCoalescedLines());
+        line(text, "pontoon_outbound_disconnects_total", "", getOutboundDisconnects());
+        line(text, "pontoon_evictions_total", "{reason=\"idle\"}", getIdleEvictions());
+        line(text, "pontoon_evictions_total", "{reason=\"write\"}", getWriteEvictions());
+        line(text, "pontoon_log_dropped_total", "", getLogDropped());
+        histogram(text, "pontoon_broadcast_seconds", broadcasts);
+        histogram(text, "pontoon_decision_wait_seconds", decisions);
+        histogram(text, "pontoon_round_seconds", rounds);
+        return text.toString();
+    }
+
+    /**
+     * Write a single metric
+     * @param text the text the metric is written to
+     * @param name the name of the metric
+     * @param labels the labels of the metric, empty for none
+     * @param value the value of the metric
+     */
+    private static void line(StringBuilder text, String name, String labels, Object value)
+    {
+        text.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Write the percentiles, count and sum of a histogram in seconds
+     * @param text the text the histogram is written to
+     * @param name the name of the histogram
+     * @param histogram the histogram
+     */
+    private static void histogram(StringBuilder text, String name, Histogram histogram)
+    {
+        for(double quantile : new double[] {0.5, 0.9, 0.99, 0.999})
+            line(text, name, "{quantile=\"" + quantile + "\"}", histogram.percentile(quantile) / 1e9);
+        line(text, name + "_max", "", histogram.max() / 1e9);
+        line(text, name + "_count", "", histogram.count());
+        line(text, name + "_sum", "", histogram.sum() / 1e9);
+    }
+
+    /**
+     * Summarise a histogram in milliseconds
+     * @param histogram the histogram
+     * @return the count, mean, percentiles and maximum of the histogram
+     */
+    private static Map<String, Double> summary(Histogram histogram)
+    {
+        long count = histogram.count();
+        Map<String, Double> summary = new LinkedHashMap<>();
+        summary.put("count", (double) count);
+        summary.put("mean", count == 0 ? 0 : histogram.sum() / 1e6 / count);
+        summary.put("p50", histogram.percentile(0.5) / 1e6);
+        summary.put("p90", histogram.percentile(0.9) / 1e6);
+        summary.put("p99", histogram.percentile(0.99) / 1e6);
+        summary.put("p99.9", histogram.percentile(0.999) / 1e6);
+        summary.put("max", histogram.max() / 1e6);
+        return summary;
+    }
+
+    @Override
+    public long getConnectionsAccepted()
+    {
+        return connections.sum();
+    }
+
+    @Override
+    public Map<String, Long> getCommandsParsed()
+    {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for(Command command : Command.values())
+            counts.put(command.word(), commands[command.ordinal()].sum());
+        return counts;
+    }
+
+    @Override
+    public int getTables()
+    {
+        return this.server.tables();
+    }
+
+    @Override
+    public int getClients()
+    {
+        int clients = 0;
+        for(Table table : this.server.allTables())
+            clients += table.status();
+        return clients;
+    }
+
+    @Override
+    public int getSpectators()
+    {
+        int spectators = 0;
+        for(Table table : this.server.allTables())
+            spectators += table.spectators();
+        return spectators;
+    }
+
+    @Override
+    public long getOutboundBacklogBytes()
+    {
+        long backlog = 0;
+        for(Table table : this.server.allTables())
+            for(Client client : table.clients())
+                backlog += client.backlog();
+        return backlog;
+    }
+
+    @Override
+    public long getOutboundBacklogMaxBytes()
+    {
+        long max = 0;
+        for(Table table : this.server.allTables())
+            for(Client client : table.clients())
+                max = Math.max(max, client.backlog());
+        return max;
+    }
+
+    @Override
+    public long getOutboundDroppedLines()
+    {
+        return Outbound.droppedLines();
+    }
+
+    @Override
+    public long getOutboundCoalescedLines()
+    {
+        return Outbound.coalescedLines();
+    }
+
+    @Override
+    public long getOutboundDisconnects()
+    {
+        return Outbound.disconnects();
+    }
+
+    @Override
+    public long getIdleEvictions()
+    {
+        return Deadlines.idleEvictions();
+    }
+
+    @Override
+    public long getWriteEvictions()
+    {
+        return Deadlines.writeEvictions();
+    }
+
+    @Override
+    public long getLogDropped()
+    {
+        return Log.dropped();
+    }
+
+    @Override
+    public Map<String, Double> getBroadcastMillis()
+    {
+        return summary(broadcasts);
+    }
+
+    @Override
+    public Map<String, Double> getDecisionWaitMillis()
+    {
+        return summary(decisions);
+    }
+
+    @Override
+    public Map<String, Double> getRoundMillis()
+    {
+        return summary(rounds);
+    }
+}
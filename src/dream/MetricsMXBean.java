@@ -0,0 +1,42 @@
+package dream;
+
+import java.util.Map;
+
+/**
+ * This interface is the management view of the server's metrics, published over JMX as dream:type=Metrics.
+ * Durations are summarised as their count, mean, percentiles and maximum in milliseconds.
+ */
+public interface MetricsMXBean
+{
+    long getConnectionsAccepted();
+
+    Map<String, Long> getCommandsParsed();
+
+    int getTables();
+
+    int getClients();
+
+    int getSpectators();
+
+    long getOutboundBacklogBytes();
+
+    long getOutboundBacklogMaxBytes();
+
+    long getOutboundDroppedLines();
+
+    long getOutboundCoalescedLines();
+
+    long getOutboundDisconnects();
+
+    long getIdleEvictions();
+
+    long getWriteEvictions();
+
+    long getLogDropped();
+
+    Map<String, Double> getBroadcastMillis();
+
+    Map<String, Double> getDecisionWaitMillis();
+
+    Map<String, Double> getRoundMillis();
+}
@@ -0,0 +1,80 @@
+package dream;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.function.Supplier;
+
+/**
+ * This class accepts connections on a server socket channel and spreads them over a small number of event loops,
+ * so a handful of threads serve every connection on the server.
+ */
+public class NioTransport implements Transport
+{
+    private static final int READ_BUFFER_SIZE = 16 * 1024; // The size of the buffer each loop reads into
+    private static final int WRITE_BUFFER_SIZE = 16 * 1024; // The size of each pooled write buffer
+    private static final int MAX_POOLED_BUFFERS = 1024; // The number of free write buffers kept in the pool
+
+    private final EventLoop[] loops; // The event loops serving the connections
+    private final Supplier<Outbound> outbound; // Creates the outbound queue of every connection
+    private final Deadlines deadlines; // The read and write deadlines of every connection
+    private int next = 0; // The loop the next connection will be given to
+
+    /**
+     * Create the transport
+     * @param loops the number of event loop threads
+     * @param outbound creates the outbound queue of every connection
+     * @param deadlines the read and write deadlines of every connection
+     * @throws Exception if the number of loops is less than 1 or a selector could not be opened
+     */
+    public NioTransport(int loops, Supplier<Outbound> outbound, Deadlines deadlines) throws Exception
+    {
+        if(loops < 1)
+            throw new Exception("Minimum Event Loops: 1");
+
+        this.outbound = outbound;
+        this.deadlines = deadlines;
+        BufferPool writeBuffers = new BufferPool(WRITE_BUFFER_SIZE, MAX_POOLED_BUFFERS);
+        this.loops = new EventLoop[loops];
+        for(int i = 0; i < loops; ++i)
+            this.loops[i] = new EventLoop(READ_BUFFER_SIZE, writeBuffers);
+    }
+
+    @Override
+    public void listen(InetAddress address, int port, Server server) throws IOException
+    {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(address, port)); // Listen on the specified URL and port number.
+
+        for(int i = 0; i < this.loops.length; ++i) // Start every event loop on its own thread
+            new Thread(this.loops[i], "EventLoop-" + i).start();
+        Log.info("started", "Server is up and running!");
+
+        while(true) // While the server is up and running.
+        {
+            try
+            {
+                SocketChannel channel = serverChannel.accept(); // Wait for the next client
+                Metrics.accepted();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                EventLoop loop = this.loops[this.next]; // Hand the connections to the loops in turn
+                this.next = (this.next + 1) % this.loops.length;
+
+                ChannelConnection connection = ChannelConnection.open(channel, loop, this.outbound.get(), this.deadlines);
+                connection.attach(new Client(connection, server)); // create a new connection
+                Log.info("connected", "Connected to Client " + connection.address());
+
+                loop.register(connection);
+            }
+            catch (IOException e)
+            {
+                Log.log(Log.Level.ERROR, 0, "accept", "Could not accept a connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dream;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class holds the optional settings the server was started with.
+ * Options are passed after the required arguments in the form --name=value
+ */
+public class Options
+{
+    public static final String TRANSPORT = "transport"; // Which transport carries the connections
+    public static final String EVENT_LOOPS = "loops"; // The number of event loop threads used by the nio transport
+    public static final String THREADS = "threads"; // Whether connections and games run on platform or virtual threads
+    public static final String TURN_TIMEOUT = "turn-timeout"; // The seconds a player has to decide before they automatically hold
+    public static final String PACING = "pacing"; // How long the tables pause between moves
+    public static final String OUTBOUND_LIMIT = "outbound-limit"; // The kilobytes allowed to wait to be written to each client
+    public static final String OUTBOUND_POLICY = "outbound-policy"; // What to do when a client's outbound queue is full
+    public static final String SEED = "seed"; // The seed every table's round seeds are drawn from, so a whole run can be repeated
+    public static final String DECKS = "decks"; // The number of decks in the shoe of each table, from 1 to 8
+    public static final String PENETRATION = "penetration"; // The percentage of a shoe dealt before it is shuffled at the end of a round
+    public static final String FILL_TIMEOUT = "fill-timeout"; // The seconds a ready player waits for a full table before being seated anyway
+    public static final String BOTS = "bots"; // The strategy of the bots filling the empty seats of a table that could not be filled
+    public static final String HISTORY = "history"; // The directory the history of every round and match is kept in
+    public static final String HISTORY_SEGMENTS = "history-segments"; // The number of log segments kept once a snapshot covers them, 0 to keep them all
+    public static final String IDLE_TIMEOUT = "idle-timeout"; // The seconds a client may send nothing before it is evicted, pinged half way through
+    public static final String WRITE_TIMEOUT = "write-timeout"; // The seconds a client may take nothing written to it before it is evicted
+    public static final String JOURNAL = "journal"; // The directory the journal of every game event is kept in, so interrupted games can resume
+    public static final String METRICS_PORT = "metrics-port"; // The loopback port the metrics are served on as plain text
+    public static final String LOG = "log"; // The directory the log is kept in as rolling files of JSON lines, instead of the console
+    public static final String LOG_LEVEL = "log-level"; // The least a record must matter to be logged, debug, info, warn or error
+    public static final String LOG_SAMPLE = "log-sample"; // Below warn, only the records of one table in this many are logged
+    public static final String LOG_SIZE = "log-size"; // The megabytes a log file grows to before the next one is started
+    public static final String LOG_FILES = "log-files"; // The number of log files kept, 0 to keep them all
+
+    public static final Set<String> SERVER = Set.of(TRANSPORT, EVENT_LOOPS, THREADS, TURN_TIMEOUT, PACING, OUTBOUND_LIMIT, OUTBOUND_POLICY, SEED,
+            DECKS, PENETRATION, FILL_TIMEOUT, BOTS, HISTORY, HISTORY_SEGMENTS, IDLE_TIMEOUT, WRITE_TIMEOUT, JOURNAL, METRICS_PORT, LOG, LOG_LEVEL,
+            LOG_SAMPLE, LOG_SIZE, LOG_FILES); // Every option the server takes
+
+    private final Map<String, String> values = new HashMap<>(); // The value of each option that was given
+
+    /**
+     * Read the options out of the command line arguments
+     * @param args the command line arguments
+     * @param from the index of the first optional argument
+     * @param known the names of the options that may be given
+     * @param usage the arguments expected, given along with an option that is not known
+     * @return the options that were given
+     * @throws Exception if an argument is not in the form --name=value or is not a known option
+     */
+    public static Options parse(String[] args, int from, Set<String> known, String usage) throws Exception
+    {
+        Options options = new Options();
+        for(int i = from; i < args.length; ++i)
+        {
+            String arg = args[i];
+            int equals = arg.indexOf('=');
+            if(!arg.startsWith("--") || equals < 0)
+                throw new Exception("Illegal Option: " + arg + " (expected --name=value)");
+
+            String name = arg.substring(2, equals);
+            if(!known.contains(name)) // A misspelt option would otherwise be ignored, leaving its default in place
+                throw new Exception("Unknown Option: " + arg + "\n" + usage);
+            options.values.put(name, arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Get the value of an option
+     * @param name the name of the option
+     * @param fallback the value to use if the option was not given
+     * @return the value of the option
+     */
+    public String get(String name, String fallback)
+    {
+        return this.values.getOrDefault(name, fallback);
+    }
+
+    /**
+     * Get the value of a long integer option
+     * @param name the name of the option
+     * @param fallback the value to use if the option was not given
+     * @return the value of the option
+     * @throws Exception if the value of the option is not an integer
+     */
+    public long getLong(String name, long fallback) throws Exception
+    {
+        String value = this.values.get(name);
+        if(value == null)
+            return fallback;
+
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new Exception("Illegal Integer Value For " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Get the value of an integer option
+     * @param name the name of the option
+     * @param fallback the value to use if the option was not given
+     * @return the value of the option
+     * @throws Exception if the value of the option is not an integer
+     */
+    public int getInt(String name, int fallback) throws Exception
+    {
+        String value = this.values.get(name);
+        if(value == null)
+            return fallback;
+
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new Exception("Illegal Integer Value For " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package dream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static game.Constants.*;
+
+/**
+ * This class represents the bounded queue of lines waiting to be written to one client.
+ * Lines are encoded once and the same bytes are shared by every client they are sent to.
+ * When a client falls so far behind that its queue goes over the limit, the policy decides what happens.
+ */
+public class Outbound
+{
+    /**
+     * What to do with a line that does not fit in a full queue
+     */
+    public enum Policy
+    {
+        DROP, // Drop the line that does not fit
+        DISCONNECT, // Disconnect the client
+        COALESCE // Drop the queued chat lines to make room, disconnecting the client if that is not enough
+    }
+
+    private static final byte[] COMMENTARY = (BROADCAST + " " + MESSAGE + " ")
+            .getBytes(StandardCharsets.UTF_8); // The start of a line that only carries text for the player's log
+
+    private static final LongAdder droppedLines = new LongAdder(); // Lines dropped on the whole server
+    private static final LongAdder coalescedLines = new LongAdder(); // Chat lines dropped to make room on the whole server
+    private static final LongAdder disconnects = new LongAdder(); // Clients disconnected for being too slow on the whole server
+
+    private final Queue<byte[]> lines = new ConcurrentLinkedQueue<>(); // The lines waiting to be written
+    private final AtomicLong queuedBytes = new AtomicLong(); // The number of bytes waiting to be written
+    private final ReentrantLock taking = new ReentrantLock(); // Lets a single thread at a time take lines out of the queue, so a line is either written or dropped, never both
+    private final long limit; // The most bytes allowed to wait
+    private final Policy policy; // What to do with a line that does not fit
+
+    /**
+     * Create an outbound queue
+     * @param limit the most bytes allowed to wait to be written
+     * @param policy what to do with a line that does not fit
+     */
+    public Outbound(long limit, Policy policy)
+    {
+        this.limit = limit;
+        this.policy = policy;
+    }
+
+    /**
+     * Get the policy with the given name
+     * @param name the name of the policy, either drop, disconnect or coalesce
+     * @return the policy
+     * @throws Exception if there is no policy with that name
+     */
+    public static Policy policy(String name) throws Exception
+    {
+        for(Policy policy : Policy.values())
+        {
+            if(policy.name().equalsIgnoreCase(name))
+                return policy;
+        }
+        throw new Exception("Unknown Outbound Policy: " + name + " (expected drop, disconnect or coalesce)");
+    }
+
+    /**
+     * Encode a line of text so it can be queued
+     * @param message the line of text
+     * @return the bytes of the line, including the line terminator
+     */
+    public static byte[] encode(String message)
+    {
+        return (message + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Add a line to the queue
+     * @param line the encoded line, which must not be changed afterwards
+     * @return false if the client should be disconnected or true if otherwise
+     */
+    public boolean offer(byte[] line)
+    {
+        if(reserve(line))
+            return true;
+
+        if(this.policy == Policy.DROP)
+        {
+            droppedLines.increment();
+            return true;
+        }
+
+        if(this.policy == Policy.COALESCE && coalesce() && reserve(line)) // Dropping the chat made enough room
+            return true;
+
+        disconnects.increment(); // The client is too far behind
+        return false;
+    }
+
+    /**
+     * Queue a line if it fits under the limit
+     * @param line the encoded line
+     * @return true if the line was queued or false if it did not fit
+     */
+    private boolean reserve(byte[] line)
+    {
+        if(this.queuedBytes.addAndGet(line.length) > this.limit)
+        {
+            this.queuedBytes.addAndGet(-line.length);
+            return false;
+        }
+
+        this.lines.offer(line);
+        return true;
+    }
+
+    /**
+     * Drop the queued lines that only carry text for the player's log, in a single pass over the queue
+     * @return true if any line was dropped or false if otherwise
+     */
+    private boolean coalesce()
+    {
+        long dropped = 0;
+        this.taking.lock();
+        try
+        {
+            Iterator<byte[]> iterator = this.lines.iterator();
+            while(iterator.hasNext())
+            {
+                byte[] line = iterator.next();
+                if(isCommentary(line))
+                {
+                    iterator.remove(); // Nothing else takes lines out while the lock is held, so the line is still queued
+                    this.queuedBytes.addAndGet(-line.length);
+                    ++dropped;
+                }
+            }
+        }
+        finally
+        {
+            this.taking.unlock();
+        }
+        coalescedLines.add(dropped);
+        return dropped > 0;
+    }
+
+    /**
+     * Check if a line only carries text for the player's log
+     * @param line the encoded line
+     * @return true if the line is a broadcast message or false if otherwise
+     */
+    private static boolean isCommentary(byte[] line)
+    {
+        if(line.length < COMMENTARY.length)
+            return false;
+
+        for(int i = 0; i < COMMENTARY.length; ++i)
+        {
+            if(line[i] != COMMENTARY[i])
+                return false;
+        }
+
+        for(int i = COMMENTARY.length; i < line.length - 1; ++i) // A game event sent in one write may carry more than commentary after its first line
+        {
+            if(line[i] == '\n')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Take the next line from the queue
+     * @return the next line or null if the queue is empty
+     */
+    public byte[] poll()
+    {
+        this.taking.lock();
+        try
+        {
+            byte[] line = this.lines.poll();
+            if(line != null)
+                this.queuedBytes.addAndGet(-line.length);
+            return line;
+        }
+        finally
+        {
+            this.taking.unlock();
+        }
+    }
+
+    /**
+     * Check if there are no lines waiting
+     * @return true if the queue is empty or false if otherwise
+     */
+    public boolean isEmpty()
+    {
+        return this.lines.isEmpty();
+    }
+
+    /**
+     * Get the number of bytes waiting to be written
+     * @return the backlog of the client in bytes
+     */
+    public long backlog()
+    {
+        return this.queuedBytes.get();
+    }
+
+    /**
+     * Empty the queue
+     */
+    public void clear()
+    {
+        this.taking.lock();
+        try
+        {
+            byte[] line;
+            while((line = this.lines.poll()) != null) // Lines offered meanwhile are counted once they are queued, so only the ones taken are uncounted
+                this.queuedBytes.addAndGet(-line.length);
+        }
+        finally
+        {
+            this.taking.unlock();
+        }
+    }
+
+    /**
+     * Get the number of lines dropped because a queue was full
+     * @return the total on the whole server
+     */
+    public static long droppedLines()
+    {
+        return droppedLines.sum();
+    }
+
+    /**
+     * Get the number of chat lines dropped to make room in a full queue
+     * @return the total on the whole server
+     */
+    public static long coalescedLines()
+    {
+        return coalescedLines.sum();
+    }
+
+    /**
+     * Get the number of clients disconnected because their queue was full
+     * @return the total on the whole server
+     */
+    public static long disconnects()
+    {
+        return disconnects.sum();
+    }
+}
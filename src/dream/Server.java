@@ -1,40 +1,77 @@
 package dream;
 
-
-import game.*;
+import game.Deck;
+import game.Pacing;
+import game.Strategy;
+import history.History;
+import journal.Event;
+import journal.Journal;
 
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-
-import static game.Constants.*;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class is used to represent the server.
- * It takes care of connecting to individual clients and as well as attending to their requests
+ * It takes care of connecting to individual clients, who wait in its lobby until they are seated at one of the tables it hosts.
+ * Every table plays its own game, so one server can run many games side by side.
  */
 public class Server 
 {
-	private static volatile Server server; // The server itself. Its volatile so all other threads will not have copies which would cause issues.
-	// It is also static so it can be accessed from other classes
-
 	private final String address; // The IP Address on which the server is running
 	private final int port; // The port on which the server is listening
 
-	private final Game game; // The game running on the server
-	private final Client[] clients; // The list of players
-
-	private final int maxPlayers; // The maximum players on this server
-	private int playerCount = 0; // The total number of players;
+	private final int maxPlayers; // The maximum players on each table
+	private final int rounds; // The number of rounds played on each table
+	private final long turnTimeout; // The milliseconds a player has to decide before they automatically hold
+	private final Pacing pacing; // How long the tables pause between moves
+	private final int decks; // The number of decks in the shoe of each table
+	private final int penetration; // The percentage of a shoe dealt before it is shuffled
+	private final SplittableRandom seeds; // Split into the random source of every table
+	private final ReentrantLock seeding = new ReentrantLock(); // Guards the seeds, since a SplittableRandom is not thread safe
+	private final ExecutorService executor; // Runs the connection loops and the game loops
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(); // Hands delayed work to the executor when it is due
+
+	private final Map<Integer, Table> tables = new ConcurrentHashMap<>(); // The registry of tables currently on the server
+	private final AtomicInteger tableCount = new AtomicInteger(); // The number of tables opened so far, used for table ids
+	private final Lobby lobby; // The players waiting for a seat
+	private final History history; // The history of every round and match, null if none is kept
+	private final Journal journal; // The journal of every game event, null if none is kept
+	private final Map<String, Client> sessions = new ConcurrentHashMap<>(); // The players who can take back their seat after losing their connection, by session token
+	private final SecureRandom tokens = new SecureRandom(); // Draws the session tokens, which must not be guessable
 
 	/**
-	 * Starts up the server and runs the game
+	 * Starts up the server and runs the games
 	 * @param address the IP address of the server
 	 * @param port the port of the server
-	 * @param maxPlayers the maximum number of players that will be accepted
+	 * @param maxPlayers the maximum number of players that will be accepted on a table
 	 * @param rounds the number of rounds to be played in one match
 	 */
 	public static void startServer(String address, int port, int maxPlayers, int rounds) throws Exception
+	{
+		startServer(address, port, maxPlayers, rounds, new Options());
+	}
+
+	/**
+	 * Starts up the server and runs the games
+	 * @param address the IP address of the server
+	 * @param port the port of the server
+	 * @param maxPlayers the maximum number of players that will be accepted on a table
+	 * @param rounds the number of rounds to be played in one match
+	 * @param options the optional settings of the server
+	 */
+	public static void startServer(String address, int port, int maxPlayers, int rounds, Options options) throws Exception
 	{
 		if(maxPlayers < 1 || maxPlayers > 4) // If the players are less than 1 or greater than 4
 			throw new Exception("Minimum Players: 1 Maximum Players: 4"); // Throw an exception
@@ -42,268 +79,347 @@ public class Server
 		if(rounds < 1) // If the rounds are less than 1
 			throw new Exception("Minimum Rounds: 1"); // Throw an exception
 
-		Server.server = new Server(address, port, maxPlayers, rounds); // Create a new server
-		Server.server.start(); // Start the server
+		String logLevel = options.get(Options.LOG_LEVEL, Log.Level.INFO.name()); // How much is logged, and where it goes
+		int logSample = options.getInt(Options.LOG_SAMPLE, 1);
+		if(logSample < 1)
+			throw new Exception("Minimum Log Sample: 1");
+		int logSize = options.getInt(Options.LOG_SIZE, 64);
+		if(logSize < 1)
+			throw new Exception("Minimum Log Size: 1");
+		int logFiles = options.getInt(Options.LOG_FILES, 8);
+		if(logFiles < 0)
+			throw new Exception("Minimum Log Files: 0");
+		String logDirectory = options.get(Options.LOG, null);
+		Log.configure(Log.level(logLevel), logSample, logDirectory == null ? null : Path.of(logDirectory), logSize * 1024L * 1024L, logFiles);
+
+		Transport transport = Transport.create(options.get(Options.TRANSPORT, Transport.BLOCKING), options); // Choose how the clients are connected
+
+		ExecutorService executor = Execution.create(options.get(Options.THREADS, Execution.PLATFORM)); // Choose which threads run the connections and games
+
+		int turnTimeout = options.getInt(Options.TURN_TIMEOUT, 30); // The seconds a player has to decide, 0 to wait forever
+		if(turnTimeout < 0)
+			throw new Exception("Minimum Turn Timeout: 0");
+
+		Pacing pacing = Pacing.of(options.get(Options.PACING, Pacing.HUMAN.name())); // Choose how fast the tables play
+
+		long seed = options.getLong(Options.SEED, new SecureRandom().nextLong()); // The seed of the whole run, random unless one was given
+		Log.info("seed", "Server seed is " + seed);
+
+		int fillTimeout = options.getInt(Options.FILL_TIMEOUT, 30); // The seconds a ready player waits for a full table, 0 to wait forever
+		if(fillTimeout < 0)
+			throw new Exception("Minimum Fill Timeout: 0");
+
+		int decks = options.getInt(Options.DECKS, 1); // The number of decks in every shoe
+		if(decks < 1 || decks > Deck.MAX_DECKS)
+			throw new Exception("Minimum Decks: 1 Maximum Decks: " + Deck.MAX_DECKS);
+
+		int penetration = options.getInt(Options.PENETRATION, Deck.DEFAULT_PENETRATION); // How much of a shoe is dealt before it is shuffled
+		if(penetration < 1 || penetration > 100)
+			throw new Exception("Minimum Penetration: 1 Maximum Penetration: 100");
+
+		String botStrategy = options.get(Options.BOTS, null); // How the bots filling empty seats play, if there are any
+		Strategy bots = botStrategy == null ? null : Strategy.of(botStrategy);
+
+		String historyDirectory = options.get(Options.HISTORY, null); // Where the history is kept, if it is kept at all
+		int historySegments = options.getInt(Options.HISTORY_SEGMENTS, 0);
+		if(historySegments < 0)
+			throw new Exception("Minimum History Segments: 0");
+		History history = historyDirectory == null ? null : History.open(Path.of(historyDirectory), historySegments,
+				(e, table) -> Log.log(Log.Level.ERROR, table, "history", "Could not append to the history, the game goes on without it", e));
+
+		String journalDirectory = options.get(Options.JOURNAL, null); // Where the game events are journaled, if they are at all
+		Journal journal = journalDirectory == null ? null : Journal.open(Path.of(journalDirectory),
+				e -> Log.log(Log.Level.ERROR, 0, "journal", "The journal stopped, the games go on without it", e));
+
+		int metricsPort = options.getInt(Options.METRICS_PORT, 0); // The port the metrics are served on, 0 for JMX only
+		if(metricsPort < 0 || metricsPort > 65535)
+			throw new Exception("Metrics Port: 0 to 65535");
+
+		Server server = new Server(address, port, maxPlayers, rounds, TimeUnit.SECONDS.toMillis(turnTimeout), pacing, decks, penetration,
+				new SplittableRandom(seed), executor, TimeUnit.SECONDS.toMillis(fillTimeout), bots, history, journal); // Create a new server
+		if(history != null)
+			server.keepHistory();
+		if(journal != null)
+			server.recover(TimeUnit.SECONDS.toMillis(fillTimeout));
+		Metrics.publish(server, metricsPort); // Publish the server's metrics over JMX and the metrics port
+		server.start(transport); // Start the server
 	}
 
 	/**
 	 * Create a server
 	 * @param address the IP address of the server
 	 * @param port the port of the server
-	 * @param maxPlayers the maximum number of players
+	 * @param maxPlayers the maximum number of players on a table
 	 * @param rounds the number of rounds to be played in a single game
+	 * @param turnTimeout the milliseconds a player has to decide before they automatically hold, 0 to wait forever
+	 * @param pacing how long the tables pause between moves
+	 * @param decks the number of decks in the shoe of each table
+	 * @param penetration the percentage of a shoe dealt before it is shuffled
+	 * @param seeds the random source split into the random source of every table
+	 * @param executor the executor running the connection loops and the game loops
+	 * @param fillTimeout the milliseconds a ready player waits for a full table, 0 to wait forever
+	 * @param bots how the bots filling empty seats play, or null to leave the seats empty
+	 * @param history the history of every round and match, or null to keep none
+	 * @param journal the journal of every game event, or null to keep none
 	 */
-	private Server(String address, int port, int maxPlayers, int rounds)
+	Server(String address, int port, int maxPlayers, int rounds, long turnTimeout, Pacing pacing, int decks, int penetration, SplittableRandom seeds,
+			ExecutorService executor, long fillTimeout, Strategy bots, History history, Journal journal)
 	{
 		this.address = address;
 		this.port = port;
-		this.game = new Game(rounds); // Create a new game
 		this.maxPlayers = maxPlayers;
-		this.clients = new Client[maxPlayers]; // Create an array of connections
+		this.rounds = rounds;
+		this.turnTimeout = turnTimeout;
+		this.pacing = pacing;
+		this.decks = decks;
+		this.penetration = penetration;
+		this.seeds = seeds;
+		this.executor = executor;
+		this.lobby = new Lobby(this, maxPlayers, fillTimeout, bots);
+		this.history = history;
+		this.journal = journal;
+		if(journal != null) // Carry on numbering the tables from where the journal left off
+			this.tableCount.set(journal.lastTable());
 	}
 
 	/**
-	 * Get the maximum number of players on the server
-	 * @return the maximum players the server can support
+	 * Reopen the tables whose games were interrupted when the server last stopped, so their players can take back their seats.
+	 * A seat is bound to the session of its player, and is only taken back by resuming that session, never by the name alone.
+	 * Each game carries on from the start of the round that was interrupted, which is dealt again from its journaled seed.
+	 * @param waitFor the milliseconds to wait for every player to come back, 0 to wait forever
 	 */
-    public static int max()
-    {
-    	return Server.server.maxPlayers;
-    }
+	private void recover(long waitFor)
+	{
+		Runtime.getRuntime().addShutdownHook(new Thread(this.journal::sync));
+
+		for(Journal.Recovered game : this.journal.recovered())
+		{
+			SplittableRandom random = new SplittableRandom(game.seed());
+			for(int i = 0; i < game.played(); ++i) // Skip the seeds of the rounds already played
+				random.nextLong();
+
+			Table table = new Table(this, game.table(), game.maxPlayers(), game.rounds(), this.turnTimeout, this.pacing, random, game.decks(), game.penetration());
+			for(Client absent : table.restore(game.names(), game.sessions(), game.played(), game.highScores(), game.dealt(), waitFor))
+				if(absent.session() != null) // The player takes back their seat by resuming their session, as after losing their connection
+					this.sessions.put(absent.session(), absent);
+			this.tables.put(table.id(), table);
+			Log.log(Log.Level.WARN, table.id(), "interrupted", "Table " + table.id() + " was interrupted after " + game.played() + " rounds and waits for its players");
+			this.executor.execute(table); // Wait for the players to come back
+		}
+	}
 
 	/**
-	 * Check if the server can start the game
-	 * @return true if all the players are ready or false if otherwise
+	 * Accepts player connections for as long as the server is running
+	 * @param transport the transport the connections are accepted on
 	 */
-	public static boolean shouldStart()
+	private void start(Transport transport)
 	{
-		boolean response = true;
-		for(Client client : Server.server.clients) // For each flag
-			response = response && client.isReady(); // AND the flag with the response.
-		return response; // response will only be true if all clients are ready but false if otherwise
+		try
+		{
+			transport.listen(InetAddress.getByName(this.address), this.port, this); // Listen on the specified URL and port number.
+		}
+		catch (Exception ex)
+		{
+			Log.log(Log.Level.ERROR, 0, "listen", "Could not listen on " + this.address + ":" + this.port, ex);
+			System.exit(1); // Close the server and exit the program if the server could not listen. The log is written out as it stops
+		}
 	}
 
 	/**
-	 * Readies all the players and starts the game
+	 * Save a snapshot of the history every minute and when the server stops
 	 */
-    private void start()
+	private void keepHistory()
 	{
-		getPlayers(); // Get all the player connections
-		startGame(); // Start the game
+		this.timer.scheduleWithFixedDelay(this::snapshot, 1, 1, TimeUnit.MINUTES);
+		Runtime.getRuntime().addShutdownHook(new Thread(this::snapshot));
 	}
 
 	/**
-	 * Creates all the player connections
+	 * Save a snapshot of the history
 	 */
-	private void getPlayers()
+	private void snapshot()
 	{
-		ServerSocket serverSocket = null; // Declare a new serverSocket
-
 		try
 		{
-			serverSocket = new ServerSocket(this.port, 0, InetAddress.getByName(this.address)); // Create the serverSocket and listen on the specified URL and port number.
-			System.out.println("Server is up and running!");
+			this.history.snapshot();
 		}
 		catch (Exception ex)
 		{
-			ex.printStackTrace();
-			System.exit(1); // Close the server and exit the program if the serverSocket was not created.
-		}
-
-		while(this.playerCount < this.maxPlayers) // While the server is up and running.
-		{
-			Socket client; // Declare a client socket.
-			try
-			{
-				client = serverSocket.accept(); // Assign the client to the incoming socket received by the serverSocket
-				this.clients[this.playerCount] = new Client(client); // create a new connection
-				System.out.println("Connected to Client " + client.getInetAddress());
-
-				new Thread(this.clients[this.playerCount]).start(); // Wrap each connection in a thread and start it
-			}
-			catch (Exception e)
-			{
-				e.printStackTrace();
-			}
-			this.playerCount++; // increment the number of players
+			Log.log(Log.Level.ERROR, 0, "history", "Could not save a snapshot of the history", ex);
 		}
 	}
 
 	/**
-	 * Starts a game of Pirates Pontoon
+	 * Get the history of every round and match
+	 * @return the history or null if none is kept
 	 */
-	private void startGame()
+	public History history()
 	{
-		while(!shouldStart()) // While all the players are not ready
-		{
-			System.out.println("Waiting for the clients before starting game");
-			sleep(1000); // Sleep for 1 second
-		}
-
-		this.game.set(this.clients); // Send the players to the game
-
-		sleep(1000); // Sleep for 1 second
-
-		boolean firstWelcome = false;
-
-		while (this.game.hasMoreRounds()) // While there are still more rounds to be played
-		{
-			playRound(firstWelcome); // Play a single round
-			this.game.reset(); // Reset the game
-			sleep(2000); // Sleep for 2 seconds
-
-			firstWelcome = true;
-		}
-
-		broadcast(GAME_OVER); // Inform all clients that the game is over
-		broadcast(QUIT); // Inform all clients to quit
+		return this.history;
 	}
 
 	/**
-	 * Play a single round of Pirates Pontoon
+	 * Start the session of a player who has introduced themselves
+	 * @param client the connection of the player
+	 * @return the token the player can resume their session with
 	 */
-	private void playRound(boolean welcome)
+	String session(Client client)
 	{
-		broadcast(START_ROUND); // Inform all the clients that the round is about to start
-		sleep(1000); // Sleep for 1 second
-
-		if(!welcome)
-			broadcast(MESSAGE + " Welcome to Pirates Pontoon"); // Welcome Message
-
-		this.game.playRound(); // Play one round
+		byte[] bytes = new byte[16];
+		this.tokens.nextBytes(bytes);
+		String token = HexFormat.of().formatHex(bytes);
+		this.sessions.put(token, client);
+		return token;
+	}
 
-		sleep(1000); // Sleep for 1 second
+	/**
+	 * Get the player holding a session
+	 * @param token the session token
+	 * @return the connection currently holding the session or null if there is no such session
+	 */
+	Client session(String token)
+	{
+		return this.sessions.get(token);
+	}
 
-		sendHighScores(); // Inform all the clients about the high scores
+	/**
+	 * Hand a session over to a new connection. Only one connection can take over a session.
+	 * @param token the session token
+	 * @param previous the connection holding the session
+	 * @param client the connection taking it over
+	 * @return true if the session was handed over or false if another connection took it first
+	 */
+	boolean resume(String token, Client previous, Client client)
+	{
+		return this.sessions.replace(token, previous, client);
 	}
 
 	/**
-	 * Send the high scores of the game to all the clients
+	 * End the session of a player who left for good
+	 * @param token the session token, null if the player never had one
+	 * @param client the connection holding the session
 	 */
-	private void sendHighScores()
+	void forget(String token, Client client)
 	{
-		String scores = getHighScores(); // Get the string form of the high scores
+		if(token != null)
+			this.sessions.remove(token, client);
+	}
 
-		broadcast(END_ROUND); // Inform all the clients that the round is over
-		sleep(1000); // Sleep for 1 second
-		broadcast(HIGH_SCORES + " " + scores); // Inform all clients about the high scores
+	/**
+	 * Get the journal of every game event
+	 * @return the journal or null if none is kept
+	 */
+	Journal journal()
+	{
+		return this.journal;
 	}
 
 	/**
-	 * Converts the high scores into a string which can be sent to all the players.
-	 * @return the String representation of the high scores
+	 * Get the lobby where players wait for a seat
+	 * @return the lobby of the server
 	 */
-	public static String getHighScores()
+	Lobby lobby()
 	{
-		int[] roundScores = Server.server.game.getHighScores(); // Get the high scores of the game
-		StringBuilder scores = new StringBuilder(); // Create a new String Builder
-		for(int i = 0; i < Server.server.clients.length; ++i) // For each connection in the server
-		{
-			boolean isActive = Server.server.clients[i].isReady();
-			if(!isActive)
-				continue;
-
-			String name = Server.server.clients[i].player().name(); // Get the name of the player
-			scores.append(name)
-					.append(" ").append(roundScores[i]); // append their name and their score
-			if(i <= Server.server.clients.length - 1)
-				scores.append(" ");
-		}
-		return scores.toString();
+		return this.lobby;
 	}
 
 	/**
-	 * Suspend the execution for a specified milliseconds
-	 * @param milliseconds the time in milliseconds in which the server will stop operation
+	 * Open a table for a group of players from the lobby and start its game
+	 * @param players the players to be seated
 	 */
-	public static void sleep(int milliseconds)
+	void open(Client[] players)
 	{
+		long seed;
+		this.seeding.lock();
 		try
 		{
-			Thread.sleep(milliseconds);
+			seed = this.seeds.nextLong(); // A single seed for the table, so the journal can rebuild its random source
 		}
-		catch (InterruptedException ignored)
+		finally
 		{
+			this.seeding.unlock();
+		}
 
+		Table table = new Table(this, this.tableCount.incrementAndGet(), this.maxPlayers, this.rounds, this.turnTimeout, this.pacing, new SplittableRandom(seed),
+				this.decks, this.penetration);
+		String[] names = new String[players.length];
+		String[] sessions = new String[players.length];
+		for(int i = 0; i < players.length; ++i) // Seat the players before anyone can see the table
+		{
+			table.seat(players[i]);
+			players[i].join(table);
+			names[i] = players[i].player().name();
+			sessions[i] = players[i].session() == null ? "" : players[i].session(); // Bots have no session
+		}
+		if(this.journal != null) // The table is journaled before its game starts
+		{
+			this.journal.append(new Event.Open(table.id(), seed, this.maxPlayers, this.rounds, this.decks, this.penetration, names, sessions));
+			this.journal.sync();
 		}
+		this.tables.put(table.id(), table);
+		this.executor.execute(table); // Start the game
 	}
 
 	/**
-	 * Send a message to all the players
-	 * @param message the message to be sent
+	 * Run a task on the server's executor
+	 * @param task the task to be run, such as the read loop of a connection
 	 */
-	public static void broadcast(String message)
+	public void execute(Runnable task)
 	{
-		for(Client client : Server.server.clients) // for each connection
-		{
-			if(!client.isReady())
-				continue;
+		this.executor.execute(task);
+	}
 
-			client.send(BROADCAST + " " + message); // send the message to the connection
-			System.out.println(BROADCAST + " " + message);
-		}
+	/**
+	 * Remove a table from the server once its game is over
+	 * @param table the table to be removed
+	 */
+	void close(Table table)
+	{
+		this.tables.remove(table.id());
+		for(Client client : table.clients()) // Nor can the players resume their sessions once the game is over
+			forget(client.session(), client);
+		Log.log(Log.Level.INFO, table.id(), "finished", "Table " + table.id() + " has finished its game");
 	}
 
 	/**
-	 * Ask the player if they would like to deal or hold
-	 * @param client the connection being asked
-	 * @return the response of the player, whether Deal or Hold
+	 * Get a table on the server
+	 * @param id the number identifying the table
+	 * @return the table with the given id or null if there is no such table
 	 */
-	public static String askAndBroadcast(Client client)
+	public Table table(int id)
 	{
-		boolean firstBroadcast = true;
-		String playerName = client.player().name(); // Get the name of the player in the connection
-		while(true) // Continually execute this request loop
-		{
-			client.send(ASK); // Ask the connection
-			if(firstBroadcast)
-			{
-				broadcast(ASK + " " + playerName + " was asked by the dealer whether to Deal or Hold");
-				firstBroadcast = false;
-			}
-
-			if(client.isDealing()) // if the connection chose to Deal
-			{
-				client.clear(); // clear its flag
-				broadcast(ASK + " " + playerName + " chose to Deal");
-				return DEAL;
-			}
-			else if(client.isHolding()) // if the connection chose to Hold
-			{
-				client.clear(); // clear its flag
-				broadcast(ASK + " " + playerName + " chose to Hold");
-				return HOLD;
-			}
-			else
-				sleep(500); // There is no response from the client, sleep for half a second then try again
-		}
+		return this.tables.get(id);
 	}
 
 	/**
-	 * Get the connections
-	 * @return the array of all the players
+	 * Get the number of tables currently on the server
+	 * @return the total number of tables
 	 */
-	public static synchronized Client[] clients()
+	public int tables()
 	{
-		return Server.server.clients;
+		return this.tables.size();
 	}
 
 	/**
-	 * Check if the server is still up and running
-	 * @return true if the game still has more rounds to play ir false if otherwise
+	 * Get the tables currently on the server
+	 * @return a live view of the tables
 	 */
-	public static synchronized boolean active()
+	Collection<Table> allTables()
 	{
-		return Server.server.game.hasMoreRounds();
+		return this.tables.values();
 	}
 
 	/**
-	 * Get the number of players connected to the server
-	 * @return the total number of players connected
+	 * Run a task on the server's executor after a delay. No thread is held while the task waits.
+	 * @param task the task to be run
+	 * @param milliseconds the time in milliseconds to wait before running the task
 	 */
-	public static synchronized int status()
+	public void schedule(Runnable task, long milliseconds)
 	{
-		return Server.server.playerCount;
+		if(milliseconds <= 0)
+			this.executor.execute(task);
+		else
+			this.timer.schedule(() -> this.executor.execute(task), milliseconds, TimeUnit.MILLISECONDS);
 	}
 
 }
\ No newline at end of file
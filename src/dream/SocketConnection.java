@@ -0,0 +1,235 @@
+package dream;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class represents a connection over a blocking socket.
+ * Lines are written by a task on the writer executor, which only runs while there is something to write.
+ */
+public class SocketConnection implements Connection
+{
+    private static final int MAX_LINE_LENGTH = 8192; // The longest line a client is allowed to send
+
+    private final Socket socket; // The socket connecting the client to the server
+    private final OutputStream writer; //For sending server responses to the client
+    private final InputStream reader; // For receiving client responses
+    private final LineDecoder decoder = new LineDecoder(MAX_LINE_LENGTH); // Splits the bytes read into lines
+
+    private final Outbound outbound; // The lines waiting to be written
+    private final Executor writers; // Runs the task that writes the waiting lines
+    private final AtomicBoolean writing = new AtomicBoolean(); // Whether a task is writing the waiting lines
+    private volatile long unflushed = 0; // The bytes taken from the queue by the writing task which have not been flushed yet
+    private volatile boolean closing = false; // Whether the socket should be closed once the waiting lines are written
+    private final Deadlines.Deadline deadline; // Evicts the client if it goes quiet or stops taking what is written to it
+
+    /**
+     * Create a new connection over a socket
+     * @param socket the socket connecting the server and the client
+     * @param outbound the queue of lines waiting to be written
+     * @param writers the executor running the task that writes the waiting lines
+     * @param deadlines the read and write deadlines of the connections
+     * @throws IOException if the streams of the socket were not obtained
+     */
+    private SocketConnection(Socket socket, Outbound outbound, Executor writers, Deadlines deadlines) throws IOException
+    {
+        this.socket = socket;
+        this.writer = new BufferedOutputStream(new Progress(socket.getOutputStream()));
+        this.reader = socket.getInputStream();
+        this.outbound = outbound;
+        this.writers = writers;
+        this.deadline = deadlines.deadline(this);
+    }
+
+    /**
+     * Open a connection over a socket, whose deadlines are only checked once it has been fully created
+     * @param socket the socket connecting the server and the client
+     * @param outbound the queue of lines waiting to be written
+     * @param writers the executor running the task that writes the waiting lines
+     * @param deadlines the read and write deadlines of the connections
+     * @return the connection
+     * @throws IOException if the streams of the socket were not obtained
+     */
+    public static SocketConnection open(Socket socket, Outbound outbound, Executor writers, Deadlines deadlines) throws IOException
+    {
+        SocketConnection connection = new SocketConnection(socket, outbound, writers, deadlines);
+        connection.deadline.start();
+        return connection;
+    }
+
+    /**
+     * This class tells the deadline of the connection every time the socket takes some of the bytes written to it,
+     * so a client taking a long run of lines a buffer at a time is never mistaken for one that takes nothing
+     */
+    private class Progress extends FilterOutputStream
+    {
+        /**
+         * Follow the bytes written to a stream
+         * @param out the output stream of the socket
+         */
+        private Progress(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            this.out.write(bytes, offset, length); // Returns once the socket has taken every byte
+            if(length > 0)
+                SocketConnection.this.deadline.wrote();
+        }
+    }
+
+    /**
+     * Read messages from the client and hand them to it until the connection is closed
+     * @param client the client the messages are for
+     */
+    public void read(Client client)
+    {
+        LineDecoder.Handler lines = client::handle;
+        ByteBuffer buffer = ByteBuffer.allocate(4096); // The bytes are decoded where they were read, with no copy into a String
+        while(receive(buffer)) // Receive messages from the client until the socket is closed
+        {
+            if(!this.decoder.decode(buffer, lines)) // The client sent a line that was too long
+                break;
+        }
+
+        client.disconnected();
+        close();
+    }
+
+    @Override
+    public void send(byte[] line)
+    {
+        if(this.closing)
+            return;
+
+        if(!this.outbound.offer(line)) // The client is too far behind
+        {
+            this.outbound.clear();
+            close();
+            return;
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * Start a task writing the waiting lines, unless one is already running
+     */
+    private void scheduleWrite()
+    {
+        if(this.writing.compareAndSet(false, true))
+            this.writers.execute(this::write);
+    }
+
+    /**
+     * Write the waiting lines until there are none left
+     */
+    private void write()
+    {
+        try
+        {
+            do
+            {
+                byte[] line;
+                long taken = 0;
+                while((line = this.outbound.poll()) != null)
+                {
+                    taken += line.length;
+                    this.unflushed = taken; // Still owed to the client until the flush returns
+                    this.writer.write(line);
+                }
+                this.writer.flush(); // One flush for everything that was waiting
+                this.unflushed = 0;
+
+                this.writing.set(false);
+            }
+            while(!this.outbound.isEmpty() && this.writing.compareAndSet(false, true)); // A line may have been queued after the queue was drained
+
+            if(this.closing && this.outbound.isEmpty())
+                closeNow();
+        }
+        catch (IOException e)
+        {
+            this.outbound.clear();
+            closeNow();
+        }
+    }
+
+    /**
+     * Receive the next bytes from the client
+     * @param buffer the buffer the bytes are read into, ready to be decoded afterwards
+     * @return false if the connection was closed or true if otherwise
+     */
+    private boolean receive(ByteBuffer buffer)
+    {
+        try
+        {
+            int read = this.reader.read(buffer.array(), 0, buffer.capacity());
+            if(read < 0)
+                return false;
+            this.deadline.read();
+
+            buffer.clear().limit(read);
+            return true;
+        }
+        catch(IOException e)
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.closing = true;
+        if(this.outbound.isEmpty() && !this.writing.get()) // Nothing left to write, so the socket can be closed now
+            closeNow();
+        else
+            scheduleWrite(); // The socket is closed once the waiting lines are written
+    }
+
+    @Override
+    public void abort()
+    {
+        this.closing = true;
+        this.outbound.clear();
+        closeNow(); // The read loop ends once the socket is closed, and a blocked write fails
+    }
+
+    /**
+     * Close the socket straight away
+     */
+    private void closeNow()
+    {
+        this.deadline.stop();
+        try
+        {
+            this.socket.close(); // Close the socket
+        }
+        catch (Exception ignored)
+        {
+
+        }
+    }
+
+    @Override
+    public String address()
+    {
+        return String.valueOf(this.socket.getInetAddress());
+    }
+
+    @Override
+    public long backlog()
+    {
+        return this.outbound.backlog() + this.unflushed;
+    }
+}
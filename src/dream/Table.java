@@ -0,0 +1,894 @@
+package dream;
+
+import game.Card;
+import game.Deck;
+import game.Game;
+import game.Host;
+import game.Odds;
+import game.Pacing;
+import game.Result;
+import game.Seat;
+import history.History;
+import journal.Event;
+import journal.Journal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static game.Constants.*;
+
+/**
+ * This class represents a single table on the server.
+ * Each table has its own players, game, deck and dealer, so many tables can be played side by side in one server.
+ */
+public class Table implements Host, Runnable
+{
+    private final Server server; // The server hosting this table
+    private final int id; // The number identifying this table on the server
+
+    private final Game game; // The game running on this table
+    private final Pacing pacing; // How long the table pauses between moves
+    private volatile Client[] clients = new Client[0]; // The list of players seated at this table, replaced whenever a player sits down
+
+    private final int maxPlayers; // The maximum players on this table
+    private final long turnTimeout; // The milliseconds a player has to decide before they automatically hold, 0 to wait forever
+
+    private final Journal journal; // The journal the events of the game are written to, null if none is kept
+    private int draws; // The number of cards drawn so far in the current round
+    private long roundStarted; // When the current round started, from System.nanoTime
+
+    // The state of a game interrupted by the server stopping, kept until the game resumes
+    private final ReentrantLock resuming = new ReentrantLock(); // Keeps players from taking back their seats while the game resumes
+    private int[] restoredScores; // The high scores when the game was interrupted, null once it has resumed or if it never stopped
+    private int restoredRound; // The number of rounds finished when the game was interrupted
+    private int[][] restoredDeals; // The positions in the shoe of the cards dealt in each round since it was last shuffled when the game was interrupted
+    private long resumeBy; // When the game resumes without the players who have not come back, from System.nanoTime, 0 to wait for all of them
+
+    // The answers to the clients' questions, encoded once and replaced whenever a player joins or leaves or a score changes
+    private final byte[] maxLine; // The answer to MaxPlayers
+    private volatile byte[] rosterLine = Outbound.encode(""); // The answer to Names
+    private volatile byte[] statusLine = Outbound.encode("0"); // The answer to Connection
+    private volatile Scoreboard scoreboard = new Scoreboard(""); // The high scores of the game
+
+    private final Feed feed = new Feed(256); // The latest lines broadcast, sent to players who come back after losing their connection
+    private final ReentrantLock broadcasting = new ReentrantLock(); // Keeps the feed in the order the lines were sent, so a player coming back misses nothing and sees nothing twice
+    private boolean over = false; // Whether the game is over, so there is no seat to take back. Guarded by broadcasting
+
+    private static final long SPECTATOR_BACKLOG = 64 * 1024; // The bytes a spectator may have waiting to be written before the fan out passes them by
+    private final Set<Client> spectators = ConcurrentHashMap.newKeySet(); // The spectators watching this table
+    private final AtomicInteger fanning = new AtomicInteger(); // The lines published since the fan out last caught up, the fan out runs while it is not 0
+    private volatile boolean finished = false; // Whether the last line has been broadcast, so the spectators can be let go once they have it
+
+    /**
+     * The high scores of the game along with the broadcast announcing them
+     * @param scores the high scores, each name followed by its score
+     * @param line the encoded broadcast of the high scores
+     */
+    private record Scoreboard(String scores, byte[] line)
+    {
+        Scoreboard(String scores)
+        {
+            this(scores, Outbound.encode(BROADCAST + " " + HIGH_SCORES + " " + scores));
+        }
+    }
+
+    /**
+     * Create a table
+     * @param server the server hosting the table
+     * @param id the number identifying the table
+     * @param maxPlayers the maximum number of players
+     * @param rounds the number of rounds to be played in a single game
+     * @param turnTimeout the milliseconds a player has to decide before they automatically hold, 0 to wait forever
+     * @param pacing how long the table pauses between moves
+     * @param seeds the random source picking the seed of every round
+     */
+    public Table(Server server, int id, int maxPlayers, int rounds, long turnTimeout, Pacing pacing, RandomGenerator seeds)
+    {
+        this(server, id, maxPlayers, rounds, turnTimeout, pacing, seeds, 1, Deck.DEFAULT_PENETRATION);
+    }
+
+    /**
+     * Create a table dealing from a shoe
+     * @param server the server hosting the table
+     * @param id the number identifying the table
+     * @param maxPlayers the maximum number of players
+     * @param rounds the number of rounds to be played in a single game
+     * @param turnTimeout the milliseconds a player has to decide before they automatically hold, 0 to wait forever
+     * @param pacing how long the table pauses between moves
+     * @param seeds the random source picking the seed of every round
+     * @param decks the number of decks in the shoe, from 1 to 8
+     * @param penetration the percentage of the shoe dealt before it is shuffled, from 1 to 100
+     */
+    public Table(Server server, int id, int maxPlayers, int rounds, long turnTimeout, Pacing pacing, RandomGenerator seeds, int decks, int penetration)
+    {
+        this.server = server;
+        this.id = id;
+        this.pacing = pacing;
+        this.game = new Game(this, rounds, seeds, decks, penetration); // Create a new game for this table
+        this.maxPlayers = maxPlayers;
+        this.turnTimeout = turnTimeout;
+        this.maxLine = Outbound.encode(String.valueOf(maxPlayers));
+        this.journal = server == null ? null : server.journal();
+    }
+
+    /**
+     * Set up the seats of a game interrupted by the server stopping. The seats are empty until their players come back.
+     * @param names the names of the players, in seat order
+     * @param sessions the session tokens of the players, in seat order, each empty if the player had none
+     * @param played the number of rounds that were finished
+     * @param highScores the high score of every player after those rounds
+     * @param dealt the positions in the shoe of the cards dealt in each of those rounds since it was last shuffled
+     * @param waitFor the milliseconds to wait for every player to come back, 0 to wait forever
+     * @return the placeholders in the seats, which hold the sessions of the players until they resume them
+     */
+    Client[] restore(String[] names, String[] sessions, int played, int[] highScores, int[][] dealt, long waitFor)
+    {
+        Client[] seated = new Client[names.length];
+        for(int i = 0; i < names.length; ++i)
+        {
+            seated[i] = Client.absent(names[i], sessions[i].isEmpty() ? null : sessions[i], this.server);
+            seated[i].join(this);
+        }
+        this.clients = seated;
+        rosterChanged();
+
+        this.restoredScores = highScores;
+        this.restoredRound = played;
+        this.restoredDeals = dealt;
+        this.resumeBy = waitFor > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitFor) : 0;
+        return seated;
+    }
+
+    /**
+     * Give a player who resumed their session their seat back, and send them the lines broadcast while they were gone.
+     * If some of those lines are no longer in the feed, the player is sent the high scores once they are caught up.
+     * @param previous the connection the player lost
+     * @param client the new connection of the player
+     * @param from the sequence number of the first line the player missed
+     * @return true if the player is back in their seat or false if the game is over
+     */
+    boolean reattach(Client previous, Client client, long from)
+    {
+        this.resuming.lock(); // Not while an interrupted game is resuming
+        this.broadcasting.lock();
+        try
+        {
+            if(this.over || !replace(previous, client))
+                return false;
+
+            if(!this.feed.read(from, client::send))
+                client.send(this.scoreboard.line());
+        }
+        finally
+        {
+            this.broadcasting.unlock();
+            this.resuming.unlock();
+        }
+        scoresChanged(); // The player is back on the high scores
+        return true;
+    }
+
+    /**
+     * Put a new connection in the seat of another
+     * @param previous the connection in the seat
+     * @param client the connection taking the seat, which plays with the same player
+     * @return true if the seat was taken or false if the connection is not seated here
+     */
+    private boolean replace(Client previous, Client client)
+    {
+        Client[] seated = this.clients.clone();
+        for(int i = 0; i < seated.length; ++i)
+        {
+            if(seated[i] == previous)
+            {
+                seated[i] = client;
+                client.join(this);
+                this.clients = seated; // Publish the new list of players
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add a spectator to this table. They are sent the high scores, then every line broadcast from now on.
+     * @param client the connection of the spectator
+     */
+    void watch(Client client)
+    {
+        this.broadcasting.lock();
+        try
+        {
+            client.watched(this.feed.next());
+            client.send(this.scoreboard.line());
+            this.spectators.add(client);
+        }
+        finally
+        {
+            this.broadcasting.unlock();
+        }
+        wake(); // The game may have ended before the spectator was added
+    }
+
+    /**
+     * Remove a spectator from this table
+     * @param client the connection of the spectator
+     */
+    void unwatch(Client client)
+    {
+        this.spectators.remove(client);
+    }
+
+    /**
+     * Get the number of spectators watching this table
+     * @return the number of spectators
+     */
+    public int spectators()
+    {
+        return this.spectators.size();
+    }
+
+    /**
+     * Make sure the fan out runs after a line has been published. At most one fan out runs at a time, on the executor,
+     * so the thread broadcasting never waits for the spectators however many there are.
+     */
+    private void wake()
+    {
+        if(this.spectators.isEmpty() && !this.finished)
+            return;
+        if(this.fanning.getAndIncrement() == 0) // Nobody is fanning out, so start
+            this.server.execute(this::fanOut);
+    }
+
+    /**
+     * Send every spectator the lines of the feed they have not been sent yet. A spectator whose connection has fallen behind
+     * is passed by, and skips ahead to the oldest line still in the feed once they have caught up.
+     */
+    private void fanOut()
+    {
+        int seen = this.fanning.get();
+        while(true)
+        {
+            boolean finished = this.finished; // Read before the feed, so the last line is in it if this is set
+            for(Client spectator : this.spectators)
+            {
+                if(spectator.backlog() > SPECTATOR_BACKLOG) // Lagging behind, the lines they miss meanwhile are skipped
+                    continue;
+                spectator.watched(this.feed.follow(spectator.watched(), spectator::send));
+            }
+
+            if(finished) // The game is over and every spectator has been sent the end of it
+            {
+                for(Client spectator : this.spectators)
+                {
+                    this.spectators.remove(spectator);
+                    spectator.close();
+                }
+            }
+
+            int now = this.fanning.addAndGet(-seen);
+            if(now == 0) // Nothing was published meanwhile
+                return;
+            seen = now;
+        }
+    }
+
+    /**
+     * Get the feed of the lines broadcast at this table
+     * @return the feed
+     */
+    Feed feed()
+    {
+        return this.feed;
+    }
+
+    /**
+     * Get the number identifying this table
+     * @return the id of the table
+     */
+    public int id()
+    {
+        return this.id;
+    }
+
+    /**
+     * Seat a player at this table. Players are seated by one thread at a time.
+     * @param client the connection of the player to be seated
+     * @return true if the table is full after seating the player or false if otherwise
+     */
+    public boolean seat(Client client)
+    {
+        if(isFull())
+            throw new IllegalStateException("Table " + this.id + " is full");
+
+        Client[] seated = Arrays.copyOf(this.clients, this.clients.length + 1);
+        seated[seated.length - 1] = client; // Take the next free seat
+        this.clients = seated; // Publish the new list of players
+        rosterChanged();
+        return isFull();
+    }
+
+    /**
+     * Check if every seat on this table has been taken
+     * @return true if the table is full or false if otherwise
+     */
+    public boolean isFull()
+    {
+        return this.clients.length >= this.maxPlayers;
+    }
+
+    /**
+     * Starts a game of Pirates Pontoon once all the players are ready.
+     * The table does not hold a thread while it waits: every wait is scheduled on the server's timer.
+     */
+    @Override
+    public void run()
+    {
+        this.resuming.lock();
+        try
+        {
+            if(!shouldStart() && !shouldResume()) // If all the players are not ready
+            {
+                if(this.restoredScores != null && this.resumeBy != 0 && System.nanoTime() - this.resumeBy >= 0) // Nobody came back in time
+                {
+                    Log.log(Log.Level.WARN, this.id, "abandoned", "Table " + this.id + " was abandoned");
+                    this.restoredScores = null;
+                    if(this.journal != null)
+                        this.journal.append(new Event.Close(this.id));
+                    this.server.close(this);
+                    return;
+                }
+
+                Log.log(Log.Level.DEBUG, this.id, "waiting", "Table " + this.id + " is waiting for the clients before starting game");
+                this.server.schedule(this, 1000); // Check again in 1 second
+                return;
+            }
+
+            this.game.set(clients()); // Send the players to the game
+            if(this.restoredScores != null) // Carry on the interrupted game from the start of the round that was interrupted
+            {
+                this.game.restore(this.restoredRound, this.restoredScores, this.restoredDeals);
+                Log.log(Log.Level.INFO, this.id, "resumed", "Table " + this.id + " resumes its game at round " + (this.restoredRound + 1));
+                this.restoredScores = null;
+            }
+        }
+        finally
+        {
+            this.resuming.unlock();
+        }
+        scoresChanged();
+
+        later(() -> playRound(false), this.pacing.delay(1000)); // Start the first round after 1 second
+    }
+
+    /**
+     * Check if an interrupted game should resume without the players who have not come back
+     * @return true if the wait for them is over and a player is ready, or false if otherwise
+     */
+    private boolean shouldResume()
+    {
+        if(this.restoredScores == null || this.resumeBy == 0 || System.nanoTime() - this.resumeBy < 0)
+            return false;
+
+        for(Client client : clients())
+            if(client.isReady())
+                return true;
+        return false;
+    }
+
+    /**
+     * Get the game running on this table
+     * @return the game
+     */
+    Game game()
+    {
+        return this.game;
+    }
+
+    /**
+     * Get the maximum number of players on this table
+     * @return the maximum players the table can support
+     */
+    public int max()
+    {
+        return this.maxPlayers;
+    }
+
+    /**
+     * Check if the table can start the game
+     * @return true if all the players are ready or false if otherwise
+     */
+    public boolean shouldStart()
+    {
+        boolean response = true;
+        for(Client client : clients()) // For each flag
+            response = response && client.isReady(); // AND the flag with the response.
+        return response; // response will only be true if all clients are ready but false if otherwise
+    }
+
+    /**
+     * Start a round of Pirates Pontoon. The round is played as a chain of steps on the executor, each scheduled on the
+     * server's timer once the pause before it is over, so the table holds no thread while it pauses or waits for a player.
+     * @param welcome true if the players have already been welcomed to the game
+     */
+    private void playRound(boolean welcome)
+    {
+        broadcast(START_ROUND); // Inform all the clients that the round is about to start
+        later(() -> startRound(welcome), this.pacing.delay(1000)); // Pause for 1 second
+    }
+
+    /**
+     * Start dealing the round once the players have been told it is about to start
+     * @param welcome true if the players have already been welcomed to the game
+     */
+    private void startRound(boolean welcome)
+    {
+        if(!welcome)
+            broadcast(MESSAGE + " Welcome to Pirates Pontoon"); // Welcome Message
+
+        this.roundStarted = System.nanoTime();
+        this.game.startRound();
+        advance();
+    }
+
+    /**
+     * Take the steps of the round up to its next pause, then schedule the step after the pause. The round stops at a
+     * player who is asked whether to deal or hold, and goes on once they have answered or run out of time.
+     */
+    private void advance()
+    {
+        long pause = 0;
+        while(pause == 0 && this.game.asking() == null && !this.game.isRoundOver())
+            pause = this.pacing.delay(this.game.step());
+
+        Seat seat = this.game.asking();
+        if(pause > 0)
+            later(this::advance, pause);
+        else if(seat != null)
+            ask((Client) seat).whenComplete((response, failure) -> guard(() -> answered(response, failure)));
+        else
+            finishRound();
+    }
+
+    /**
+     * Go on with the round once the player being asked has answered
+     * @param response the response of the player, whether Deal or Hold
+     * @param failure what went wrong while taking the answer, or null if nothing did
+     */
+    private void answered(String response, Throwable failure)
+    {
+        if(failure != null)
+        {
+            abandon(failure);
+            return;
+        }
+        this.game.answer(response);
+        advance();
+    }
+
+    /**
+     * Journal the outcome of the round once it is over, then keep it once it is on the disk. The table does not wait
+     * for the disk on a thread of its own, it goes on when the batch holding the outcome has been forced.
+     */
+    private void finishRound()
+    {
+        Metrics.round(System.nanoTime() - this.roundStarted);
+        Result result = this.game.result();
+
+        if(this.journal == null)
+        {
+            keepRound(result);
+            return;
+        }
+
+        this.journal.append(new Event.Outcome(this.id, this.game.round(), result.winner(), result.dealerScore(), result.scores(),
+                this.game.getHighScores().clone()));
+        this.journal.durable().whenCompleteAsync((ignored, failure) -> guard(() -> keepRound(result)), this.server::execute); // The round is over once its outcome is on the disk
+    }
+
+    /**
+     * Keep the outcome of the round in the history, then tell the players the round is over after 1 second
+     * @param result the outcome of the round
+     */
+    private void keepRound(Result result)
+    {
+        History history = this.server.history();
+        if(history != null) // Keep the round in the history of the server
+            history.round(this.id, this.game.round(), names(), result);
+        scoresChanged();
+        Log.log(Log.Level.INFO, this.id, "round", "Table " + this.id + " played a round with seed " + this.game.seed()); // Record the seed so the round can be replayed
+
+        later(this::endRound, this.pacing.delay(1000)); // Pause for 1 second
+    }
+
+    /**
+     * Tell the players the round is over, then send them the high scores after 1 second
+     */
+    private void endRound()
+    {
+        Scoreboard scoreboard = this.scoreboard; // The high scores as they were at the end of the round
+
+        broadcast(END_ROUND); // Inform all the clients that the round is over
+        later(() -> sendHighScores(scoreboard), this.pacing.delay(1000)); // Pause for 1 second
+    }
+
+    /**
+     * Run a step of the game on the executor after a delay. A step that fails ends the game, since the round cannot go on.
+     * @param step the step to be run
+     * @param milliseconds the time in milliseconds to wait before running the step
+     */
+    private void later(Runnable step, long milliseconds)
+    {
+        this.server.schedule(() -> guard(step), milliseconds);
+    }
+
+    /**
+     * Run a step of the game, ending the game if it fails
+     * @param step the step to be run
+     */
+    private void guard(Runnable step)
+    {
+        try
+        {
+            step.run();
+        }
+        catch (RuntimeException ex)
+        {
+            abandon(ex);
+        }
+    }
+
+    /**
+     * End the game after 2 seconds because a step of a round failed
+     * @param failure what went wrong
+     */
+    private void abandon(Throwable failure)
+    {
+        Log.log(Log.Level.ERROR, this.id, "round", "Table " + this.id + " could not go on with its round", failure);
+        this.server.schedule(this::endGame, this.pacing.delay(2000));
+    }
+
+    /**
+     * End the game and remove the table from the server
+     */
+    private void endGame()
+    {
+        try
+        {
+            this.broadcasting.lock();
+            try
+            {
+                this.over = true;
+            }
+            finally
+            {
+                this.broadcasting.unlock();
+            }
+
+            announce(GAME_OVER, QUIT); // Inform all clients that the game is over and that they should quit
+            this.finished = true;
+            wake(); // Let the spectators go once they have been sent the end of the game
+
+            History history = this.server.history();
+            int[] highScores = this.game.getHighScores();
+            if(history != null && highScores != null) // Keep the match in the history of the server
+                history.match(this.id, this.game.round(), names(), highScores);
+
+            if(this.journal != null)
+                this.journal.append(new Event.Close(this.id));
+        }
+        finally
+        {
+            for(Client client : clients()) // There is nothing left to do for the clients, so close their connections
+                client.close();
+
+            this.server.close(this); // Remove the table from the server once the match is over
+        }
+    }
+
+    /**
+     * Send the high scores of the game to all the clients, then schedule the next round or the end of the game after 2 seconds
+     * @param scoreboard the high scores as they were at the end of the round
+     */
+    private void sendHighScores(Scoreboard scoreboard)
+    {
+        broadcast(scoreboard.line(), HIGH_SCORES + " " + scoreboard.scores()); // Inform all clients about the high scores
+        this.game.reset(); // Reset the game
+
+        if(this.game.hasMoreRounds()) // While there are still more rounds to be played
+            later(() -> playRound(true), this.pacing.delay(2000));
+        else // The game is over
+            this.server.schedule(this::endGame, this.pacing.delay(2000));
+    }
+
+    /**
+     * Get the high scores as a string which can be sent to all the players.
+     * @return the String representation of the high scores
+     */
+    public String getHighScores()
+    {
+        return this.scoreboard.scores();
+    }
+
+    /**
+     * Rebuild the names and the number of players at the table after a player sits down
+     */
+    private void rosterChanged()
+    {
+        Client[] clients = this.clients;
+        StringBuilder names = new StringBuilder();
+        for(Client client : clients) // The names are followed by a space, as they always have been
+            names.append(client.player().name()).append(" ");
+
+        this.rosterLine = Outbound.encode(names.toString());
+        this.statusLine = Outbound.encode(String.valueOf(clients.length));
+    }
+
+    /**
+     * Rebuild the high scores after a round or after a player leaves. Only players still in the game are listed.
+     */
+    void scoresChanged()
+    {
+        int[] roundScores = this.game.getHighScores(); // Get the high scores of the game
+        if(roundScores == null) // The game has not started
+            return;
+
+        Client[] clients = clients();
+        StringBuilder scores = new StringBuilder(); // Create a new String Builder
+        for(int i = 0; i < clients.length; ++i) // For each connection on the table
+        {
+            if(!clients[i].isReady())
+                continue;
+
+            if(scores.length() > 0) // Separate the players, with no space after the last one
+                scores.append(" ");
+            scores.append(clients[i].player().name())
+                    .append(" ").append(roundScores[i]); // append their name and their score
+        }
+        this.scoreboard = new Scoreboard(scores.toString());
+    }
+
+    /**
+     * Send a message to all the players at this table
+     * @param message the message to be sent
+     */
+    @Override
+    public void broadcast(String message)
+    {
+        broadcast(Outbound.encode(BROADCAST + " " + message), message); // Encode the message once for every connection
+    }
+
+    /**
+     * Send the messages of a game event to all the players at this table in a single write, as the same lines they would
+     * be sent one at a time, so every client reads them as before while each connection is written and flushed once
+     * @param messages the messages to be sent, in order
+     */
+    @Override
+    public void announce(String... messages)
+    {
+        StringBuilder lines = new StringBuilder();
+        for(String message : messages)
+            lines.append(BROADCAST).append(' ').append(message).append('\n');
+
+        broadcast(lines.toString().getBytes(StandardCharsets.UTF_8), messages); // Encoded once for every connection, and kept as one entry in the feed
+    }
+
+    /**
+     * Send an encoded broadcast to all the players at this table
+     * @param line the encoded broadcast, which may hold several lines
+     * @param messages the messages being broadcast, one for each line
+     */
+    private void broadcast(byte[] line, String... messages)
+    {
+        long start = System.nanoTime();
+        this.broadcasting.lock();
+        try
+        {
+            this.feed.publish(line); // Kept for the players who lost their connection
+            for(Client client : clients()) // for each connection
+            {
+                if(!client.isReady())
+                    continue;
+
+                client.send(line); // send the message to the connection
+            }
+        }
+        finally
+        {
+            this.broadcasting.unlock();
+        }
+        if(Log.enabled(Log.Level.DEBUG, this.id)) // Logged once rather than for every connection, and never while holding the lock
+            for(String message : messages)
+                Log.log(Log.Level.DEBUG, this.id, "broadcast", message);
+        wake(); // The spectators are sent the line from the feed
+        Metrics.broadcast(System.nanoTime() - start);
+    }
+
+    /**
+     * Ask the player if they would like to deal or hold, without waiting for them.
+     * A player who does not answer within the turn timeout holds.
+     * @param client the connection being asked
+     * @return a future completed on the executor with the response of the player, whether Deal or Hold, once it has been broadcast
+     */
+    private CompletableFuture<String> ask(Client client)
+    {
+        String playerName = client.player().name(); // Get the name of the player in the connection
+
+        long start = System.nanoTime();
+        CompletableFuture<String> decision = client.ask(); // Ask the connection
+        broadcast(ASK + " " + playerName + " was asked by the dealer whether to Deal or Hold");
+
+        CompletableFuture<String> due = this.turnTimeout > 0 ? decision.copy().completeOnTimeout(HOLD, this.turnTimeout, TimeUnit.MILLISECONDS) : decision;
+        return due.handleAsync((ignored, failure) -> taken(client, decision, start), this.server::execute); // Whichever of the answer and the timeout comes first
+    }
+
+    /**
+     * Take the answer of a player once they have answered or run out of time, and tell everyone what they chose
+     * @param client the connection that was asked
+     * @param decision the decision of the player, completed with Hold here if they did not answer in time
+     * @param start when the player was asked, from System.nanoTime
+     * @return the response of the player, whether Deal or Hold
+     */
+    private String taken(Client client, CompletableFuture<String> decision, long start)
+    {
+        String playerName = client.player().name();
+        Metrics.decision(System.nanoTime() - start);
+
+        boolean timedOut = client.expire();
+        if(timedOut) // The player did not answer in time, so they hold
+            broadcast(MESSAGE + " " + playerName + " took too long and holds");
+
+        String response = decision.join(); // Completed by whichever of the answer and the timeout came first
+        client.endTurn();
+
+        if(this.journal != null)
+            this.journal.append(new Event.Decision(this.id, seatOf(client), response.equals(DEAL), timedOut));
+        broadcast(ASK + " " + playerName + " chose to " + response);
+        return response;
+    }
+
+    @Override
+    public void started(int round, long seed)
+    {
+        this.draws = 0;
+        if(this.journal != null)
+            this.journal.append(new Event.Round(this.id, round, seed));
+    }
+
+    @Override
+    public void dealt(int seat, Card card, int slot)
+    {
+        int draw = this.draws++;
+        if(this.journal != null)
+            this.journal.append(new Event.Dealt(this.id, seat, draw, Deck.id(card), slot));
+    }
+
+    @Override
+    public void shuffled()
+    {
+        if(this.journal != null)
+            this.journal.append(new Event.Shuffle(this.id));
+    }
+
+    /**
+     * Get the seat of a player at this table
+     * @param client the connection of the player
+     * @return the index of their seat or -1 if they are not seated here
+     */
+    private int seatOf(Client client)
+    {
+        Client[] clients = this.clients;
+        for(int i = 0; i < clients.length; ++i)
+            if(clients[i] == client)
+                return i;
+        return -1;
+    }
+
+    @Override
+    public Seat[] seats()
+    {
+        return this.clients;
+    }
+
+    @Override
+    public String ask(Seat seat)
+    {
+        return ask((Client) seat).join();
+    }
+
+    /**
+     * Get the names of the players seated at this table
+     * @return the names, in seat order
+     */
+    private String[] names()
+    {
+        Client[] clients = this.clients;
+        String[] names = new String[clients.length];
+        for(int i = 0; i < clients.length; ++i)
+            names[i] = clients[i].player().name();
+        return names;
+    }
+
+    /**
+     * Get the connections seated at this table
+     * @return the array of all the players that have taken a seat
+     */
+    public Client[] clients()
+    {
+        return this.clients;
+    }
+
+    /**
+     * Get the names of the players at this table
+     * @return the encoded answer to Names
+     */
+    public byte[] rosterLine()
+    {
+        return this.rosterLine;
+    }
+
+    /**
+     * Take down the score of a player who is being asked to deal or hold along with the cards left in the shoe,
+     * so their chances can be worked out later on another thread
+     * @param client the player being asked
+     * @return the work giving the encoded answer to Odds, Deal:bust:win Hold:bust:win, or null if nobody has been asked yet
+     */
+    public Supplier<byte[]> odds(Client client)
+    {
+        int[] remaining = this.game.remaining(); // Read before the score, which was written before it
+        if(remaining == null)
+            return null;
+
+        int score = client.player().score();
+        return () ->
+        {
+            Odds odds = Odds.of(score, remaining);
+            return Outbound.encode(String.format(Locale.ROOT, "%s:%.4f:%.4f %s:%.4f:%.4f", DEAL, odds.dealBust(), odds.dealWin(), HOLD, odds.holdBust(), odds.holdWin()));
+        };
+    }
+
+    /**
+     * Get the number of players seated at this table
+     * @return the encoded answer to Connection
+     */
+    public byte[] statusLine()
+    {
+        return this.statusLine;
+    }
+
+    /**
+     * Get the maximum number of players on this table
+     * @return the encoded answer to MaxPlayers
+     */
+    public byte[] maxLine()
+    {
+        return this.maxLine;
+    }
+
+    /**
+     * Check if the table is still up and running
+     * @return true if the game still has more rounds to play or false if otherwise
+     */
+    public boolean active()
+    {
+        return this.game.hasMoreRounds();
+    }
+
+    /**
+     * Get the number of players seated at this table
+     * @return the total number of players connected
+     */
+    public int status()
+    {
+        return this.clients.length;
+    }
+}
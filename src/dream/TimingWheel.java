@@ -0,0 +1,163 @@
+package dream;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is a hashed timing wheel, running the timeouts of every connection on a single thread.
+ * Time is cut into ticks, and a timeout is hung on the bucket of the tick it is due in along with the number of
+ * turns of the wheel it has to wait, so scheduling and cancelling cost the same however many timeouts are waiting.
+ * Timeouts are handed to the wheel's thread through a queue, and run no earlier than they are due and at most a tick late.
+ * The tasks run on the wheel's thread, so they must be short and must never block.
+ */
+public class TimingWheel implements Runnable
+{
+    /**
+     * A task waiting on the wheel
+     */
+    public static final class Timeout
+    {
+        private final Runnable task; // The task run when the timeout is due
+        private final long deadline; // When the timeout is due, from System.nanoTime
+        private long turns; // The turns of the wheel left before the timeout is due, only used by the wheel's thread
+        private Timeout next; // The next timeout in the same bucket, only used by the wheel's thread
+        private volatile boolean cancelled = false; // Whether the task should no longer be run
+
+        /**
+         * Create a timeout
+         * @param task the task to be run
+         * @param deadline when the task is due, from System.nanoTime
+         */
+        private Timeout(Runnable task, long deadline)
+        {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Stop the task from being run. The timeout is dropped from the wheel when its bucket next comes round.
+         */
+        public void cancel()
+        {
+            this.cancelled = true;
+        }
+    }
+
+    private final long tick; // The nanoseconds in one tick
+    private final Timeout[] buckets; // The timeouts due in each tick of a turn, only used by the wheel's thread
+    private final int mask; // The number of buckets minus one, the number of buckets is a power of two
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>(); // The timeouts scheduled since the last tick
+    private final long start = System.nanoTime(); // When the wheel started turning
+    private long ticks = 0; // The ticks passed since the wheel started turning
+
+    /**
+     * Create a timing wheel and start it turning on its own daemon thread
+     * @param tickMillis the milliseconds in one tick
+     * @param buckets the number of ticks in one turn, rounded up to a power of two
+     * @param name the name of the wheel's thread
+     */
+    public TimingWheel(long tickMillis, int buckets, String name)
+    {
+        int size = Integer.highestOneBit(Math.max(buckets - 1, 1)) << 1;
+        this.tick = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+
+        Thread thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Schedule a task
+     * @param task the task to be run, on the wheel's thread
+     * @param delayMillis the milliseconds to wait before the task is run
+     * @return the timeout, which can be cancelled
+     */
+    public Timeout schedule(Runnable task, long delayMillis)
+    {
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        this.added.offer(timeout);
+        return timeout;
+    }
+
+    @Override
+    public void run()
+    {
+        while(true)
+        {
+            long wait = this.start + (this.ticks + 1) * this.tick - System.nanoTime();
+            if(wait > 0) // Sleep until the next tick
+            {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+
+            ++this.ticks;
+            hang(); // Hang the new timeouts on their buckets
+            expire(this.buckets[(int) this.ticks & this.mask]); // Run the timeouts due in this tick
+        }
+    }
+
+    /**
+     * Hang the timeouts scheduled since the last tick on the buckets of the ticks they are due in
+     */
+    private void hang()
+    {
+        Timeout timeout;
+        while((timeout = this.added.poll()) != null)
+        {
+            if(timeout.cancelled)
+                continue;
+
+            long due = Math.max(this.ticks, (timeout.deadline - this.start + this.tick - 1) / this.tick); // Round up, so it is never early
+            timeout.turns = (due - this.ticks) / this.buckets.length;
+            int bucket = (int) due & this.mask;
+            timeout.next = this.buckets[bucket];
+            this.buckets[bucket] = timeout;
+        }
+    }
+
+    /**
+     * Run the timeouts of a bucket which are due in this turn of the wheel, keeping the rest
+     * @param first the first timeout in the bucket
+     */
+    private void expire(Timeout first)
+    {
+        int bucket = (int) this.ticks & this.mask;
+        this.buckets[bucket] = null;
+
+        Timeout timeout = first;
+        while(timeout != null)
+        {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if(timeout.cancelled) // Dropped from the wheel
+            {
+                timeout = next;
+                continue;
+            }
+
+            if(timeout.turns > 0) // Due in a later turn, so it stays in the bucket
+            {
+                --timeout.turns;
+                timeout.next = this.buckets[bucket];
+                this.buckets[bucket] = timeout;
+            }
+            else
+            {
+                try
+                {
+                    timeout.task.run();
+                }
+                catch (Exception ex)
+                {
+                    Log.log(Log.Level.ERROR, 0, "timeout", "A timeout failed on the timing wheel", ex);
+                }
+            }
+            timeout = next;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dream;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * This interface represents the way the server accepts connections and moves lines of text to and from its clients.
+ */
+public interface Transport
+{
+    String BLOCKING = "blocking"; // One thread per connection on blocking sockets
+    String NIO = "nio"; // A few selector event loops on non-blocking channels
+
+    /**
+     * Listen for connections and hand every new client to the server. This method does not return while the server is running.
+     * @param address the IP address to listen on
+     * @param port the port to listen on
+     * @param server the server the clients will be handed to
+     * @throws IOException if the server could not listen on the address and port
+     */
+    void listen(InetAddress address, int port, Server server) throws IOException;
+
+    /**
+     * Create the transport with the given name
+     * @param name the name of the transport, either blocking or nio
+     * @param options the options the server was started with
+     * @return the transport
+     * @throws Exception if there is no transport with that name
+     */
+    static Transport create(String name, Options options) throws Exception
+    {
+        int limit = options.getInt(Options.OUTBOUND_LIMIT, 256); // The kilobytes allowed to wait for each client
+        if(limit < 1)
+            throw new Exception("Minimum Outbound Limit: 1");
+
+        Outbound.Policy policy = Outbound.policy(options.get(Options.OUTBOUND_POLICY, Outbound.Policy.COALESCE.name()));
+        Supplier<Outbound> outbound = () -> new Outbound(limit * 1024L, policy);
+
+        int idleTimeout = options.getInt(Options.IDLE_TIMEOUT, 0); // The seconds a client may send nothing, 0 to wait forever
+        if(idleTimeout < 0)
+            throw new Exception("Minimum Idle Timeout: 0");
+        int writeTimeout = options.getInt(Options.WRITE_TIMEOUT, 30); // The seconds a client may take nothing written to it, 0 to wait forever
+        if(writeTimeout < 0)
+            throw new Exception("Minimum Write Timeout: 0");
+        Deadlines deadlines = new Deadlines(TimeUnit.SECONDS.toMillis(idleTimeout), TimeUnit.SECONDS.toMillis(writeTimeout));
+
+        if(name.equals(BLOCKING))
+            return new BlockingTransport(outbound, deadlines);
+        if(name.equals(NIO))
+            return new NioTransport(options.getInt(Options.EVENT_LOOPS, Runtime.getRuntime().availableProcessors()), outbound, deadlines);
+        throw new Exception("Unknown Transport: " + name + " (expected " + BLOCKING + " or " + NIO + ")");
+    }
+}
@@ -32,4 +32,12 @@ public class Constants
     public static final String QUIT = "Quit";
     public static final String GAME_OVER = "GameOver";
     public static final String READY = "Ready";
+    public static final String LEADERBOARD = "Leaderboard";
+    public static final String HISTORY = "History";
+    public static final String SESSION = "Session";
+    public static final String RESUME = "Resume";
+    public static final String WATCH = "Watch";
+    public static final String PING = "Ping";
+    public static final String PONG = "Pong";
+    public static final String ODDS = "Odds";
 }
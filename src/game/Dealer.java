@@ -1,17 +1,38 @@
 package game;
 
-import java.util.Random;
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 
 /**
- * This class is used to represent a dealer
+ * This class is used to represent a dealer.
+ * Every round is dealt from its own seed, so a round can be dealt again exactly by starting it with the same seed.
  */
 public class Dealer
 {
     private int score; // The score of the dealer
 
+    private final RandomGenerator seeds; // Picks the seed of every round
+    private RandomGenerator random; // Picks the cards of the current round
+    private long seed; // The seed of the current round
+
+    /**
+     * Create a dealer whose rounds are seeded from a secure random source
+     */
     public Dealer()
+    {
+        this(new SplittableRandom(new SecureRandom().nextLong()));
+    }
+
+    /**
+     * Create a dealer
+     * @param seeds the random source picking the seed of every round
+     */
+    public Dealer(RandomGenerator seeds)
     {
         this.score = 0;
+        this.seeds = seeds;
     }
 
     /**
@@ -23,6 +44,36 @@ public class Dealer
         return this.score;
     }
 
+    /**
+     * Start a new round with the next seed
+     * @return the seed of the round
+     */
+    public long startRound()
+    {
+        return startRound(this.seeds.nextLong());
+    }
+
+    /**
+     * Start a new round with a given seed. Starting a round from a shoe left as it was with the seed of an earlier round deals it again.
+     * @param seed the seed of the round
+     * @return the seed of the round
+     */
+    public long startRound(long seed)
+    {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        return seed;
+    }
+
+    /**
+     * Get the seed of the current round
+     * @return the seed the current round is being dealt from
+     */
+    public long seed()
+    {
+        return this.seed;
+    }
+
     /**
      * Deals a player a card
      * @param deck the deck of cards from which the player is being dealt
@@ -31,10 +82,7 @@ public class Dealer
      */
     public Card dealPlayer(Deck deck, Player player)
     {
-        Random r = new Random(System.currentTimeMillis()); // Create a new random generator
-
-        int index = Math.abs(r.nextInt() % deck.size()); // Get a random index within the size of the remaining cards in the deck
-        Card card = deck.removeCard(index); // Remove the card at the specified index
+        Card card = deck.draw(random()); // Draw a random card from the shoe
         player.add(card.score()); // add the score of the card to the player
 
         return card;
@@ -42,15 +90,36 @@ public class Dealer
 
     public void dealSelf(Deck deck)
     {
-        Random r = new Random(System.currentTimeMillis()); // Create a new random generator
+        dealSelf(deck, card -> {});
+    }
 
+    /**
+     * Deals the dealer cards until its score is more than 16
+     * @param deck the deck of cards from which the dealer is being dealt
+     * @param dealt told about every card dealt to the dealer
+     */
+    public void dealSelf(Deck deck, Consumer<Card> dealt)
+    {
         while(this.score <= 16) // While the dealer has a score less than or equal to 16
         {
-            int index = Math.abs(r.nextInt() % deck.size()); // Get a random index within the size of the remaining cards in the deck
-            this.score += deck.removeCard(index).score(); // Remove the card at the specified index and add its score to the dealer's
+            Card card = deck.draw(random()); // Draw a random card
+            this.score += card.score(); // and add its score to the dealer's
+            dealt.accept(card);
         }
     }
 
+    /**
+     * Get the random source picking the cards of the current round
+     * @return the random source of the round
+     */
+    private RandomGenerator random()
+    {
+        if(this.random == null) // No round was started, so start one
+            startRound();
+
+        return this.random;
+    }
+
     /**
      * Reset the score of the dealer to 0
      */
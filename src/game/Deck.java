@@ -1,63 +1,262 @@
 package game;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
 
 /**
- * This class is used to represent a deck of cards
+ * This class is used to represent a shoe of one to eight decks of cards.
+ * The shoe is kept as the number of every card, from 0 to 51, in draw order along with the number of cards of each value left,
+ * and removed cards are swapped behind the cards that are left, so drawing a card takes constant time however many decks there are.
+ * Cards stay out of the shoe from one round to the next until the cut card is reached, and only then is the shoe shuffled.
+ * Should the shoe run out in the middle of a round, the cards of the earlier rounds are put back, leaving the cards in play out.
  */
 public class Deck
 {
-    private final List<Card> cards = new ArrayList<>(); // A list for all the cards this deck contains
+    private static final Card[] CARDS = createCards(); // The 52 cards of a deck, shared by every shoe
+    private static final Map<Card, Integer> IDS = createIds(); // The number of each card, so a card dealt is journaled without searching the deck
+    public static final int MAX_DECKS = 8; // The most decks in a shoe
+    public static final int DEFAULT_PENETRATION = 75; // The percentage of the shoe dealt before it is shuffled, unless another is given
+    private static final byte[] ORDER = createOrder(); // The cards of the largest shoe in their original order, copied into a shoe when it is shuffled
+
+    private final byte[] order; // The numbers of the cards left in the shoe, followed by the cards removed from it with the latest first
+    private final int[] counts = new int[Constants.numberOfValues]; // The number of cards of each value left in the shoe
+    private final int decks; // The number of decks in the shoe
+    private final int cut; // The number of cards dealt before the shoe is shuffled at the end of a round
+    private int size; // The number of cards left in the shoe
+    private int roundStart; // The number of cards that were left when the current round started
+    private int drawn = -1; // The position in the shoe the latest card was drawn from
 
     /**
-     * Create a new deck of cards
+     * Create a single deck, shuffled once it has been dealt down to the default penetration
      */
     public Deck()
     {
-        createCards(); // create the cards and add them to the list
+        this(1, DEFAULT_PENETRATION);
+    }
+
+    /**
+     * Create a shoe
+     * @param decks the number of decks in the shoe, from 1 to 8
+     * @param penetration the percentage of the shoe dealt before it is shuffled, from 1 to 100
+     */
+    public Deck(int decks, int penetration)
+    {
+        if(decks < 1 || decks > MAX_DECKS)
+            throw new IllegalArgumentException("Decks: 1 to " + MAX_DECKS);
+        if(penetration < 1 || penetration > 100)
+            throw new IllegalArgumentException("Penetration: 1 to 100");
+
+        this.decks = decks;
+        this.order = new byte[decks * CARDS.length];
+        this.cut = Math.max(1, this.order.length * penetration / 100);
+        reset();
     }
 
     /**
-     * Clear all the cards in the deck and create new ones
+     * Shuffle every card back into the shoe, in their original order so a shoe dealt from the same seeds deals the same cards
      */
     public void reset()
     {
-        this.cards.clear();
-        createCards();
+        System.arraycopy(ORDER, 0, this.order, 0, this.order.length);
+        Arrays.fill(this.counts, Constants.numberOfSuits * this.decks);
+        this.size = this.order.length;
+        this.roundStart = this.size;
+    }
+
+    /**
+     * End the current round, shuffling the shoe if the cut card has been reached
+     * @return true if the shoe was shuffled or false if otherwise
+     */
+    public boolean endRound()
+    {
+        if(this.order.length - this.size >= this.cut)
+        {
+            reset();
+            return true;
+        }
+
+        this.roundStart = this.size;
+        return false;
+    }
+
+    /**
+     * Draw a random card from the shoe
+     * @param random the random source picking the card
+     * @return the card drawn
+     */
+    public Card draw(RandomGenerator random)
+    {
+        if(this.size == 0)
+            refill();
+        this.drawn = random.nextInt(this.size);
+        return removeCard(this.drawn);
+    }
+
+    /**
+     * Draw the card at a position in the shoe again, as it was drawn, so the shoe of an interrupted game can be rebuilt.
+     * A shoe of several decks holds several copies of a card, so the position is needed rather than the card.
+     * @param slot the position the card was drawn from
+     * @return the card drawn
+     */
+    public Card redraw(int slot)
+    {
+        if(this.size == 0)
+            refill();
+        this.drawn = slot;
+        return removeCard(slot);
+    }
+
+    /**
+     * Get the position in the shoe the latest card was drawn from
+     * @return the position of the card among the cards that were left, -1 if no card was drawn yet
+     */
+    public int drawn()
+    {
+        return this.drawn;
+    }
+
+    /**
+     * Put the cards of the earlier rounds back into an empty shoe. The cards of the current round stay out, since they are in play.
+     */
+    private void refill()
+    {
+        int inPlay = this.roundStart - this.size;
+        if(inPlay >= this.order.length)
+            throw new IllegalStateException("Every card of the shoe is in play");
+
+        byte[] played = Arrays.copyOfRange(this.order, 0, inPlay); // The cards in play are the latest removed, right behind the cards left
+        System.arraycopy(this.order, inPlay, this.order, 0, this.order.length - inPlay);
+        System.arraycopy(played, 0, this.order, this.order.length - inPlay, inPlay);
+
+        this.size = this.order.length - inPlay;
+        this.roundStart = this.size;
+        Arrays.fill(this.counts, 0);
+        for(int i = 0; i < this.size; ++i)
+            ++this.counts[this.order[i] % Constants.numberOfValues];
     }
 
     /**
-     * Create a new set of cards
+     * Get the number of cards of a value left in the shoe
+     * @param value the index of the value, from 0 for an Ace to 12 for a King
+     * @return the number of cards of that value left
      */
-    private void createCards()
+    public int count(int value)
     {
+        return this.counts[value];
+    }
+
+    /**
+     * Get the number of cards left in the shoe for each score, with the court cards counted along with the Tens
+     * @return the number of cards left for each score, from 1 to 10
+     */
+    public int[] composition()
+    {
+        int[] composition = new int[Odds.SCORES];
+        for(int value = 0; value < Constants.numberOfValues; ++value)
+            composition[Math.min(value, Odds.SCORES - 1)] += this.counts[value];
+        return composition;
+    }
+
+    /**
+     * Get the number of decks in the shoe
+     * @return the number of decks
+     */
+    public int decks()
+    {
+        return this.decks;
+    }
+
+    /**
+     * Get the number identifying a card
+     * @param card the card
+     * @return the position of the card in a new deck, from 0 to 51
+     */
+    public static int id(Card card)
+    {
+        Integer id = IDS.get(card);
+        if(id == null)
+            throw new IllegalArgumentException("Not a card of the deck: " + card);
+        return id;
+    }
+
+    /**
+     * Get a card by its number
+     * @param id the position of the card in a new deck, from 0 to 51
+     * @return the card
+     */
+    public static Card card(int id)
+    {
+        return CARDS[id];
+    }
+
+    /**
+     * Create the set of cards shared by every deck
+     * @return the 52 cards of a deck
+     */
+    private static Card[] createCards()
+    {
+        Card[] cards = new Card[Constants.numberOfSuits * Constants.numberOfValues];
         for(int i = 0; i < Constants.numberOfSuits; i++) // For each suit
         {
             for(int j = 0; j < Constants.numberOfValues; ++j) // For each value
             {
                 int value = (j >= 10) ? 10 : (j + 1); // If the value is a court card, then it has a value of 10 otherwise, it has a normal value
-                this.cards.add(new Card(Constants.suits[i], Constants.values[j], value)); // create a new card and add it to the list of cards
+                cards[i * Constants.numberOfValues + j] = new Card(Constants.suits[i], Constants.values[j], value); // create a new card and add it to the list of cards
             }
         }
+        return cards;
+    }
+
+    /**
+     * Create the index from every card of a deck to its number
+     * @return the number of each card
+     */
+    private static Map<Card, Integer> createIds()
+    {
+        Map<Card, Integer> ids = new HashMap<>();
+        for(int i = 0; i < CARDS.length; ++i)
+            ids.put(CARDS[i], i);
+        return ids;
     }
 
     /**
-     * Remove a card from the deck
+     * Create the original order of the cards of the largest shoe, deck after deck
+     * @return the numbers of the cards
+     */
+    private static byte[] createOrder()
+    {
+        byte[] order = new byte[MAX_DECKS * CARDS.length];
+        for(int i = 0; i < order.length; ++i)
+            order[i] = (byte) (i % CARDS.length);
+        return order;
+    }
+
+    /**
+     * Remove a card from the shoe. The last card left takes its place, so the order of the remaining cards changes.
      * @param index the index of the card to be removed
-     * @return the card removed from the deck
+     * @return the card removed from the shoe
      */
     public Card removeCard(int index)
     {
-        return this.cards.remove(index);
+        if(index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + this.size + " cards");
+
+        byte id = this.order[index];
+        int last = --this.size;
+        this.order[index] = this.order[last]; // Move the last card left into the gap
+        this.order[last] = id; // Keep the removed card behind the cards that are left so reset can bring it back
+        --this.counts[id % Constants.numberOfValues];
+        return CARDS[id];
     }
 
     /**
-     * Get the size of the deck
-     * @return the number of cards left in the deck
+     * Get the size of the shoe
+     * @return the number of cards left in the shoe
      */
     public int size()
     {
-        return this.cards.size();
+        return this.size;
     }
 }
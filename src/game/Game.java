@@ -1,7 +1,6 @@
 package game;
 
-import dream.Client;
-import dream.Server;
+import java.util.random.RandomGenerator;
 
 import static game.Constants.*;
 import static game.Constants.MESSAGE;
@@ -9,10 +8,12 @@ import static game.Constants.MESSAGE;
 /**
  * This class is used to represent a game of Pirates Pontoon. It takes care of creating the dealer, the deck of cards
  * and as well as playing a number of rounds that is specified during creation time.
+ * The game only talks to its players through its host, so it can be played on a server table or in a simulation.
  */
 public class Game
 {
-    private final Deck deck; // A deck of cards
+    private final Host host; // The host this game is played on
+    private final Deck deck; // The shoe the cards are dealt from
     private final Dealer dealer; // The dealer of cards
 
     private Player[] players; // An array of players
@@ -20,28 +21,66 @@ public class Game
 
     private final int maxRounds; // The maximum rounds that can be played
     private int currentRound; // The current round being played
+    private volatile int[] remaining; // The cards left in the shoe for each score when a player was last asked, null until then
+
+    /**
+     * The steps of a round, in the order they are taken
+     */
+    private enum Phase
+    {
+        FIRST_CARD, // Dealing the first card to the next player
+        SECOND_CARD, // Dealing the second card to the player who was just dealt the first one
+        ASK, // Asking the next player whether to deal or hold
+        ANSWER, // Waiting for the answer of the player being asked, then acting on it
+        DEALER, // Dealing the dealer
+        SCORE, // Announcing the score of the dealer
+        WINNER, // Determining the winner
+        OVER // The round is over, or no round has been started
+    }
+
+    private Phase phase = Phase.OVER; // The next step of the current round
+    private int turn; // The seat whose turn it is in the current step
+    private Card first; // The first card dealt to the player whose turn it is
+    private String answer; // The answer of the player being asked, null until they give it
+    private Result result; // The result of the last round, null until it is over
 
     /**
      * Creates a new game object.
+     * @param host the host the game is played on
+     * @param maxRounds the maximum rounds to be played
+     * @param seeds the random source picking the seed of every round
+     */
+    public Game(Host host, int maxRounds, RandomGenerator seeds)
+    {
+        this(host, maxRounds, seeds, 1, Deck.DEFAULT_PENETRATION);
+    }
+
+    /**
+     * Creates a new game object dealt from a shoe.
+     * @param host the host the game is played on
      * @param maxRounds the maximum rounds to be played
+     * @param seeds the random source picking the seed of every round
+     * @param decks the number of decks in the shoe, from 1 to 8
+     * @param penetration the percentage of the shoe dealt before it is shuffled, from 1 to 100
      */
-    public Game(int maxRounds)
+    public Game(Host host, int maxRounds, RandomGenerator seeds, int decks, int penetration)
     {
-        this.deck = new Deck(); // Create a new deck of cards
-        this.dealer = new Dealer(); // Create a new dealer
+        this.host = host;
+        this.deck = new Deck(decks, penetration); // Create a new shoe of cards
+        this.dealer = new Dealer(seeds); // Create a new dealer
         this.maxRounds = maxRounds;
         this.currentRound = 0;
     }
 
     /**
      * Set the players for the game
-     * @param clients the players playing the game
+     * @param seats the seats of the players playing the game
      */
-    public void set(Client[] clients)
+    public void set(Seat[] seats)
     {
-        this.players = new Player[clients.length];
-        for(int i = 0; i < clients.length; i++)
-            this.players[i] = clients[i].player();
+        this.players = new Player[seats.length];
+        for(int i = 0; i < seats.length; i++)
+            this.players[i] = seats[i].player();
 
         this.highScores = new int[players.length];
     }
@@ -56,12 +95,52 @@ public class Game
     }
 
     /**
-     * Reset the contents of the deck and the score of the dealer.
+     * Carry on a game that was interrupted, such as by the server stopping. Called after the players have been set.
+     * @param round the number of rounds that were played
+     * @param highScores the high score of every player after those rounds
+     * @param dealt the positions in the shoe of the cards dealt in each round since the shoe was last shuffled, in the order they were drawn
+     */
+    public void restore(int round, int[] highScores, int[][] dealt)
+    {
+        this.currentRound = round;
+        System.arraycopy(highScores, 0, this.highScores, 0, Math.min(highScores.length, this.highScores.length));
+
+        this.deck.reset();
+        for(int[] cards : dealt) // Take the cards out of the shoe again, round by round, so it is left exactly as it was
+        {
+            for(int slot : cards)
+                this.deck.redraw(slot);
+            this.deck.endRound();
+        }
+    }
+
+    /**
+     * Get the number of rounds played so far
+     * @return the rounds played
+     */
+    public int round()
+    {
+        return this.currentRound;
+    }
+
+    /**
+     * Reset the score of the dealer at the end of a round, and shuffle the shoe if the cut card has been reached.
      */
     public void reset()
     {
         this.dealer.reset();
-        this.deck.reset();
+        if(this.deck.endRound())
+            this.host.shuffled();
+    }
+
+    /**
+     * Get the cards that were left in the shoe when a player was last asked to deal or hold. Written before the player
+     * is asked, so a thread that reads it also sees the score the player was asked with.
+     * @return the number of cards left for each score, from 1 to 10, or null if no player has been asked yet
+     */
+    public int[] remaining()
+    {
+        return this.remaining;
     }
 
     /**
@@ -74,121 +153,243 @@ public class Game
     }
 
     /**
-     * Play a single round of Pirates Pontoon
+     * Get the seed of the current round, so the round can be dealt again
+     * @return the seed the round is dealt from
      */
-    public void playRound()
+    public long seed()
     {
-        dealAllPlayers(); // Deal each player two random cards
-        askEachPlayer(); // Ask each player if they want to hold or deal another card
-
-        dealer.dealSelf(deck); // Deal the dealer until its score is more than 16
+        return this.dealer.seed();
+    }
 
-        Server.sleep(1000); // Sleep the server for 1 second
+    /**
+     * Play a single round of Pirates Pontoon straight through, without any of its pauses
+     * @return the result of the round
+     */
+    public Result playRound()
+    {
+        startRound();
+        while(!isRoundOver())
+        {
+            Seat seat = asking();
+            if(seat != null)
+                answer(this.host.ask(seat)); // Ask the player if they would like to hold or deal another card
+            else
+                step();
+        }
+        return this.result;
+    }
 
-        determineWinner(); // Determine the winner of the round
+    /**
+     * Start a round of Pirates Pontoon, which is then played by taking its steps until it is over
+     */
+    public void startRound()
+    {
+        long seed = this.dealer.startRound(); // Pick the seed this round is dealt from
+        this.host.started(this.currentRound + 1, seed);
 
-        ++this.currentRound; // Increment the current round variable
+        this.phase = Phase.FIRST_CARD;
+        this.turn = 0;
+        this.result = null;
     }
 
     /**
-     * Deals two random cards to every player in the game.
+     * Take the next step of the current round. A host that plays for people pauses for as long as it is told before
+     * taking the step after it, and does not take it while a player is being asked until the player has answered.
+     * @return the milliseconds to pause for human players before the next step, which the host scales by its pacing
+     * @throws IllegalStateException if the round is over or a player is being asked and has not answered yet
      */
-    private void dealAllPlayers()
+    public int step()
     {
-        Client[] clients = Server.clients();
+        if(isRoundOver() || asking() != null)
+            throw new IllegalStateException("The round cannot go on until it is started or the player has answered");
 
-        for(Client client : clients) // For each player
+        while(true)
         {
-            if(!client.isReady())
-                continue;
-
-            Player player = client.player();
-
-            Card card = this.dealer.dealPlayer(this.deck, player); // deal the player a card from the deck
-
-            String currentPlayer = player.name();
-            String cardDetails = card.value() + " " + card.suit() + " " + card.score(); // get the details of the card dealt
+            switch(this.phase)
+            {
+                case FIRST_CARD: // Deal each player two random cards
+                    if(!nextReady())
+                    {
+                        this.phase = Phase.ASK;
+                        this.turn = 0;
+                        break;
+                    }
+                    dealFirstCard();
+                    this.phase = Phase.SECOND_CARD;
+                    return 1000; // Pause for 1 second
+                case SECOND_CARD:
+                    dealSecondCard();
+                    ++this.turn;
+                    this.phase = Phase.FIRST_CARD;
+                    return 500; // Pause for half a second
+                case ASK: // Ask each player if they want to hold or deal another card
+                    if(!nextReady())
+                    {
+                        this.phase = Phase.DEALER;
+                        break;
+                    }
+                    this.remaining = this.deck.composition(); // Published before asking, for the player's odds
+                    this.answer = null;
+                    this.phase = Phase.ANSWER;
+                    return 0;
+                case ANSWER:
+                    if(takeAnswer()) // The player is asked again
+                        return 0;
+                    ++this.turn;
+                    this.phase = Phase.ASK;
+                    return 1000; // Pause for 1 second
+                case DEALER:
+                    dealer.dealSelf(deck, card -> this.host.dealt(Result.DEALER, card, this.deck.drawn())); // Deal the dealer until its score is more than 16
+                    this.phase = Phase.SCORE;
+                    return 1000; // Pause for 1 second
+                case SCORE:
+                    this.host.announce(DEALER_SCORE + " " + this.dealer.score(), // Update the clients about the score of the dealer
+                            MESSAGE + " The dealer has been dealt his cards"); // Send a message to each client's log
+                    this.phase = Phase.WINNER;
+                    return 1000; // Pause for 1 second
+                default: // The winner
+                    this.result = determineWinner(); // Determine the winner of the round
+                    ++this.currentRound; // Increment the current round variable
+                    this.phase = Phase.OVER;
+                    return 0;
+            }
+        }
+    }
 
-            Server.broadcast(DEAL_CARD + " " + currentPlayer + " " + cardDetails); // send the details to all clients
+    /**
+     * Get the seat of the player the round is waiting for
+     * @return the seat of the player being asked whether to deal or hold who has not answered yet, or null if nobody is
+     */
+    public Seat asking()
+    {
+        if(this.phase != Phase.ANSWER || this.answer != null)
+            return null;
+        return this.host.seats()[this.turn];
+    }
 
-            Server.sleep(1000); // Sleep the server for 1 second
+    /**
+     * Give the round the answer of the player being asked, so it can take its next step
+     * @param response the response of the player, whether Deal or Hold
+     */
+    public void answer(String response)
+    {
+        this.answer = response;
+    }
 
-            String suitOne = card.suit(), valueOne = card.value();
+    /**
+     * Check if the current round is over
+     * @return true if the round is over or has not been started, or false if it still has steps to take
+     */
+    public boolean isRoundOver()
+    {
+        return this.phase == Phase.OVER;
+    }
 
-            card = this.dealer.dealPlayer(this.deck, player); // deal the player another card from the deck
-            cardDetails = card.value() + " " + card.suit() + " " + card.score(); // get its details
+    /**
+     * Get the result of the last round
+     * @return the result of the round, or null if it is not over yet
+     */
+    public Result result()
+    {
+        return this.result;
+    }
 
-            Server.broadcast(DEAL_CARD + " " + currentPlayer + " " + cardDetails); // send the details to all clients
+    /**
+     * Move the turn on to the next seat whose player is ready, starting from the current one
+     * @return true if there is such a seat or false if every seat has had its turn
+     */
+    private boolean nextReady()
+    {
+        Seat[] seats = this.host.seats();
+        while(this.turn < seats.length && !seats[this.turn].isReady())
+            ++this.turn;
+        return this.turn < seats.length;
+    }
 
-            String suitTwo = card.suit(), valueTwo = card.value();
+    /**
+     * Deal the first of the two cards of the player whose turn it is
+     */
+    private void dealFirstCard()
+    {
+        Player player = this.host.seats()[this.turn].player();
 
-            Server.broadcast(END); // signals the end of transmission
-            Server.broadcast(MESSAGE + " " + currentPlayer
-                    + " was dealt two cards: A " + valueOne + " of " + suitOne +
-                    " and a " + valueTwo + " of " + suitTwo); // send a message to all clients about the cards the current player was dealt
+        Card card = this.dealer.dealPlayer(this.deck, player); // deal the player a card from the deck
+        this.host.dealt(this.turn, card, this.deck.drawn());
+        this.first = card;
 
-            Server.sleep(500); // sleep the server for half a second
-        }
+        String cardDetails = card.value() + " " + card.suit() + " " + card.score(); // get the details of the card dealt
+        this.host.broadcast(DEAL_CARD + " " + player.name() + " " + cardDetails); // send the details to all clients
     }
 
     /**
-     * Ask each player if they want to deal another card or hold their current card
+     * Deal the second of the two cards of the player whose turn it is
      */
-    private void askEachPlayer()
+    private void dealSecondCard()
     {
-        Client[] clients = Server.clients(); // Get the connections from the server since we are going to be sending a request to the connection
+        Player player = this.host.seats()[this.turn].player();
+        String currentPlayer = player.name();
+
+        Card card = this.dealer.dealPlayer(this.deck, player); // deal the player another card from the deck
+        this.host.dealt(this.turn, card, this.deck.drawn());
+        String cardDetails = card.value() + " " + card.suit() + " " + card.score(); // get its details
+
+        this.host.announce(DEAL_CARD + " " + currentPlayer + " " + cardDetails, // send the details to all clients
+                END, // signals the end of transmission
+                MESSAGE + " " + currentPlayer
+                + " was dealt two cards: A " + this.first.value() + " of " + this.first.suit() +
+                " and a " + card.value() + " of " + card.suit()); // send a message to all clients about the cards the current player was dealt
+    }
 
-        for (Client client : clients) // For each connection
+    /**
+     * Act on the answer of the player whose turn it is
+     * @return true if the player was dealt another card and is asked again, or false if their turn is over
+     */
+    private boolean takeAnswer()
+    {
+        if(!this.answer.equals(DEAL)) // The player holds
+            return false;
+
+        Player player = this.host.seats()[this.turn].player();
+        String playerName = player.name();
+        Card card = dealer.dealPlayer(deck, player); // Deal the card
+        this.host.dealt(this.turn, card, this.deck.drawn());
+        String cardDetails = card.value() + " " + card.suit()
+                + " " + card.score(); // get its details
+        String dealtMessage = MESSAGE + " " + playerName + " was dealt a " + card.value() + " of " + card.suit(); // for every player's log
+
+        if(player.score() > 21) // if the player's score was over 21, then the player is busted
         {
-            if(!client.isReady())
-                continue;
-
-            String playerName = client.player().name(); // Get the name of the player represented by this connection
-
-            String response = Server.askAndBroadcast(client); // Ask the player if they would like to hold or deal another card
-
-            while (response.equals(DEAL)) // while the player wants to deal more cards
-            {
-                Card card = dealer.dealPlayer(deck, client.player()); // Deal the card
-                String cardDetails = card.value() + " " + card.suit()
-                        + " " + card.score(); // get its details
-                Server.broadcast(DEAL_CARD + " " + playerName + " " + cardDetails); // send it to all players
-                Server.broadcast(END); // end the transmission
-                Server.broadcast(MESSAGE + " " + playerName + " was dealt a " + card.value() + " of " + card.suit()); // Send a message to every player's log
-
-                if(client.player().score() > 21) // if the player's score was over 21, then the player is busted
-                {
-                    Server.broadcast(MESSAGE + " " + playerName + " was busted!");
-                    break;
-                }
-
-                response = Server.askAndBroadcast(client); // Ask the player again if they want to deal another card or hold their current card
-            }
-
-            Server.sleep(1000); // Sleep the server for 1 second
+            this.host.announce(DEAL_CARD + " " + playerName + " " + cardDetails, END, dealtMessage, MESSAGE + " " + playerName + " was busted!");
+            return false;
         }
+        this.host.announce(DEAL_CARD + " " + playerName + " " + cardDetails, END, dealtMessage); // send it to all players, then end the transmission
+
+        this.remaining = this.deck.composition();
+        this.answer = null; // Ask the player again if they want to deal another card or hold their current card
+        return true;
     }
 
     /**
-     * Determines the winner after a single round of Pirates Pontoon
+     * Determines the winner after a single round of Pirates Pontoon. Package private so it can be benchmarked on its own.
+     * @return the result of the round
      */
-    private void determineWinner()
+    Result determineWinner()
     {
         int dealerScore = this.dealer.score(); // Get the score of the dealer
 
-        Client[] clients = Server.clients();
-
-        Server.broadcast(DEALER_SCORE + " " + dealerScore); // Update the clients about the score of the dealer
-        Server.broadcast(MESSAGE + " The dealer has been dealt his cards"); // Send a message to each client's log
+        Seat[] seats = this.host.seats();
 
-        Server.sleep(1000); // Sleep the server for 1 second
+        int[] scores = new int[this.players.length]; // Keep the final scores for the result before they are reset
+        for(int i = 0; i < this.players.length; ++i)
+            scores[i] = this.players[i].score();
+        int winner;
 
         if(dealerScore > 21) // The dealer has lost, everyone wins;
         {
             for(int i = 0; i < this.players.length; ++i)
                 this.highScores[i] += 1; // Increment everybody's score
-            Server.broadcast(MESSAGE + " The dealer had a score of " + dealerScore + " and lost this round. Everyone wins");
-            Server.broadcast(WIN + " " + ALL);
+            this.host.announce(MESSAGE + " The dealer had a score of " + dealerScore + " and lost this round. Everyone wins", WIN + " " + ALL);
+            winner = Result.EVERYONE;
         }
         else // The dealer did not lose
         {
@@ -206,8 +407,8 @@ public class Game
 
             if(dealerScore >= maxScore) // If the dealer's score is at least the maximum score, the dealer wins
             {
-                Server.broadcast(MESSAGE + " " + "The dealer wins this round");
-                Server.broadcast(WIN + " -1");
+                this.host.announce(MESSAGE + " " + "The dealer wins this round", WIN + " -1");
+                winner = Result.DEALER;
             }
             else // Otherwise, a player won the round
             {
@@ -220,23 +421,28 @@ public class Game
                         ++count;
                 }
                 if(count > 1) // If there are more than one person, it is a draw
-                    Server.broadcast(MESSAGE + " " + "Draw! Nobody wins this round");
+                {
+                    this.host.broadcast(MESSAGE + " " + "Draw! Nobody wins this round");
+                    winner = Result.DRAW;
+                }
                 else // Only one person wins the round
                 {
                     this.highScores[index] += 1;
-                    Server.broadcast(MESSAGE + " " + this.players[index].name() + " wins this round");
-                    Server.broadcast(WIN + " " + index);
+                    this.host.announce(MESSAGE + " " + this.players[index].name() + " wins this round", WIN + " " + index);
+                    winner = index;
                 }
             }
         }
 
         // Reset the scores of all the players
-        for(Client client : clients)
+        for(Seat seat : seats)
         {
-            if(!client.isReady())
+            if(!seat.isReady())
                 continue;
 
-            client.player().reset();
+            seat.player().reset();
         }
+
+        return new Result(this.dealer.seed(), dealerScore, scores, winner);
     }
 }
@@ -0,0 +1,67 @@
+package game;
+
+/**
+ * This interface represents whatever a game is played on: it seats the players, tells them about the game and asks them for their decisions.
+ * A server table hosts a game for connected players, while a simulation hosts it for scripted players.
+ */
+public interface Host
+{
+    /**
+     * Get the seats of the game
+     * @return the seats of all the players
+     */
+    Seat[] seats();
+
+    /**
+     * Send a message to all the players
+     * @param message the message to be sent
+     */
+    void broadcast(String message);
+
+    /**
+     * Send the messages of a single game event to all the players together, such as a card along with the lines that follow it.
+     * A host that writes to connections can send them in a single write, while the players still receive every message in order.
+     * @param messages the messages to be sent, in order
+     */
+    default void announce(String... messages)
+    {
+        for(String message : messages)
+            broadcast(message);
+    }
+
+    /**
+     * Ask the player in a seat if they would like to deal another card or hold their current card
+     * @param seat the seat being asked
+     * @return the response of the player, whether Deal or Hold
+     */
+    String ask(Seat seat);
+
+    /**
+     * Called when a round starts, before any card is dealt
+     * @param round the number of the round, starting at 1
+     * @param seed the seed the round is dealt from
+     */
+    default void started(int round, long seed)
+    {
+
+    }
+
+    /**
+     * Called for every card dealt, in the order the cards are dealt
+     * @param seat the index of the seat the card was dealt to, or Result.DEALER for the dealer
+     * @param card the card
+     * @param slot the position in the shoe the card was drawn from, so the shoe can be rebuilt exactly
+     */
+    default void dealt(int seat, Card card, int slot)
+    {
+
+    }
+
+    /**
+     * Told whenever the shoe is shuffled at the end of a round
+     */
+    default void shuffled()
+    {
+
+    }
+}
@@ -0,0 +1,191 @@
+package game;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This record holds the chances of a player who is asked whether to deal another card or hold, against the dealer.
+ * The dealer draws from what is left in the shoe until its score is more than 16, a dealer who busts loses to everyone,
+ * and a dealer whose score is at least the player's wins. Dealing is taken as drawing one more card and then holding.
+ * The shoe is described by its composition, the number of cards left of each score from 1 to 10. Every composition the
+ * dealer can be left with is worked out once per question, and the dealer's final scores from a whole shoe are kept in
+ * a bounded cache shared by every table, since the tables dealing from similar shoes ask about the same compositions.
+ * @param dealBust the chance of going over 21 with one more card
+ * @param dealWin the chance of beating the dealer after one more card
+ * @param holdBust the chance of being over 21 already
+ * @param holdWin the chance of beating the dealer by holding
+ */
+public record Odds(double dealBust, double dealWin, double holdBust, double holdWin)
+{
+    public static final int SCORES = 10; // The scores a card can have, from 1 to 10
+    private static final int BUST = 22; // The index of a bust in a distribution of final scores, after the scores 0 to 21
+    private static final int CACHE_SIZE = 4096; // The most compositions kept in the cache
+
+    private static final ReentrantLock lock = new ReentrantLock(); // Guards the cache, whose reads also reorder it
+    private static final Map<Long, double[]> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) // The dealer's final scores by composition, least recently used first
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Work out the chances of a player
+     * @param score the score of the player
+     * @param remaining the number of cards left in the shoe for each score, from 1 to 10
+     * @return the chances of dealing and of holding
+     */
+    public static Odds of(int score, int[] remaining)
+    {
+        int[] counts = remaining.clone(); // Changed while the cards are taken out and put back
+        long key = key(counts);
+        int total = 0;
+        for(int count : counts)
+            total += count;
+
+        double[] dealer = dealer(key, counts);
+        double holdBust = score > 21 ? 1 : 0;
+        double holdWin = win(dealer, score);
+
+        double dealBust = 0, dealWin = 0;
+        if(score > 21 || total == 0) // Another card changes nothing
+            return new Odds(holdBust, holdWin, holdBust, holdWin);
+
+        for(int card = 0; card < SCORES; ++card) // For each score the next card can have
+        {
+            if(counts[card] == 0)
+                continue;
+
+            double chance = (double) counts[card] / total;
+            int next = score + card + 1;
+            if(next > 21)
+                dealBust += chance;
+
+            --counts[card]; // The dealer draws from what is left after the player's card
+            dealWin += chance * win(dealer(key - unit(card), counts), next);
+            ++counts[card];
+        }
+        return new Odds(dealBust, dealWin, holdBust, holdWin);
+    }
+
+    /**
+     * Work out the chance of beating the dealer
+     * @param dealer the chances of the dealer's final scores
+     * @param score the final score of the player
+     * @return the chance the dealer busts or ends below the player, who has not bust
+     */
+    private static double win(double[] dealer, int score)
+    {
+        double win = dealer[BUST]; // A dealer who busts loses to everyone
+        if(score <= 21)
+            for(int final_ = 0; final_ < score; ++final_)
+                win += dealer[final_];
+        return win;
+    }
+
+    /**
+     * Get the chances of the dealer's final scores when drawing from a whole composition, from the cache if it is there
+     * @param key the composition packed into a key
+     * @param counts the composition
+     * @return the chance of each final score from 0 to 21, followed by the chance of a bust
+     */
+    private static double[] dealer(long key, int[] counts)
+    {
+        lock.lock();
+        try
+        {
+            double[] cached = cache.get(key);
+            if(cached != null)
+                return cached;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        double[] dealer = draw(key, counts, 0, new HashMap<>()); // Worked out outside the lock, so two tables may both work out the same one
+        lock.lock();
+        try
+        {
+            cache.put(key, dealer);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        return dealer;
+    }
+
+    /**
+     * Work out the chances of the dealer's final scores as the dealer draws until its score is more than 16
+     * @param key the composition left packed into a key
+     * @param counts the composition left, put back as it was before returning
+     * @param score the score of the dealer so far
+     * @param memo the chances already worked out for the compositions left, which each follow from a single score
+     * @return the chance of each final score from 0 to 21, followed by the chance of a bust
+     */
+    private static double[] draw(long key, int[] counts, int score, Map<Long, double[]> memo)
+    {
+        double[] chances = memo.get(key);
+        if(chances != null)
+            return chances;
+
+        chances = new double[BUST + 1];
+        int total = 0;
+        for(int count : counts)
+            total += count;
+
+        if(total == 0) // Nothing left to draw, so the dealer stays where it is
+            chances[score] = 1;
+        for(int card = 0; card < SCORES && total > 0; ++card)
+        {
+            if(counts[card] == 0)
+                continue;
+
+            double chance = (double) counts[card] / total;
+            int next = score + card + 1;
+            if(next > 21)
+                chances[BUST] += chance;
+            else if(next > 16) // The dealer stops drawing
+                chances[next] += chance;
+            else
+            {
+                --counts[card];
+                double[] after = draw(key - unit(card), counts, next, memo);
+                ++counts[card];
+                for(int i = 0; i <= BUST; ++i)
+                    chances[i] += chance * after[i];
+            }
+        }
+        memo.put(key, chances);
+        return chances;
+    }
+
+    /**
+     * Pack a composition into a key. Every score but 10 takes 6 bits, since there are at most 32 of them in 8 decks,
+     * and the score of 10 takes the last 8 bits.
+     * @param counts the number of cards left for each score
+     * @return the key
+     */
+    private static long key(int[] counts)
+    {
+        long key = 0;
+        for(int card = 0; card < SCORES; ++card)
+            key += counts[card] * unit(card);
+        return key;
+    }
+
+    /**
+     * Get the amount a single card of a score adds to a key
+     * @param card the index of the score, from 0 for 1 to 9 for 10
+     * @return the amount a card adds to a key
+     */
+    private static long unit(int card)
+    {
+        return 1L << (6 * card);
+    }
+}
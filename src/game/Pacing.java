@@ -0,0 +1,46 @@
+package game;
+
+/**
+ * This enum represents how fast a game is played.
+ * Every pause in the game is written as the milliseconds it takes for human players and the pacing scales it.
+ * Nothing waits for a pause here: a table schedules the step after it on the server's timer once the pause is over.
+ */
+public enum Pacing
+{
+    HUMAN(1.0), // The pace human players can follow
+    FAST(0.2), // A quicker pace for experienced players and bot tables
+    ZERO(0.0); // No pauses at all, so bot tables and tests play as fast as possible
+
+    private final double scale; // How much the human pauses are scaled by
+
+    Pacing(double scale)
+    {
+        this.scale = scale;
+    }
+
+    /**
+     * Get the pacing with the given name
+     * @param name the name of the pacing, either human, fast or zero
+     * @return the pacing
+     * @throws Exception if there is no pacing with that name
+     */
+    public static Pacing of(String name) throws Exception
+    {
+        for(Pacing pacing : values())
+        {
+            if(pacing.name().equalsIgnoreCase(name))
+                return pacing;
+        }
+        throw new Exception("Unknown Pacing: " + name + " (expected human, fast or zero)");
+    }
+
+    /**
+     * Get how long a pause takes at this pace
+     * @param milliseconds the length of the pause for human players
+     * @return the length of the pause in milliseconds
+     */
+    public long delay(int milliseconds)
+    {
+        return Math.round(milliseconds * this.scale);
+    }
+}
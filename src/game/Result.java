@@ -0,0 +1,15 @@
+package game;
+
+/**
+ * This record represents the result of a single round of Pirates Pontoon.
+ * @param seed the seed the round was dealt from
+ * @param dealerScore the final score of the dealer
+ * @param scores the final score of every player, in seat order
+ * @param winner the seat of the player who won the round, or one of DEALER, EVERYONE and DRAW
+ */
+public record Result(long seed, int dealerScore, int[] scores, int winner)
+{
+    public static final int DEALER = -1; // The dealer won the round
+    public static final int EVERYONE = -2; // The dealer was busted, so every player won the round
+    public static final int DRAW = -3; // More than one player had the best score, so nobody won the round
+}
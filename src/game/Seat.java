@@ -0,0 +1,19 @@
+package game;
+
+/**
+ * This interface represents a seat at a game, taken by a player who may or may not be ready to play.
+ */
+public interface Seat
+{
+    /**
+     * Get the player sitting in this seat
+     * @return the player
+     */
+    Player player();
+
+    /**
+     * Indicates if the player is ready
+     * @return true if the player is taking part in the game or false if otherwise
+     */
+    boolean isReady();
+}
@@ -0,0 +1,41 @@
+package game;
+
+/**
+ * This interface represents the way a scripted player decides whether to deal another card or hold.
+ */
+public interface Strategy
+{
+    /**
+     * Decide whether to deal another card
+     * @param score the current score of the player
+     * @return true to deal another card or false to hold
+     */
+    boolean deal(int score);
+
+    /**
+     * Create the strategy with the given name
+     * @param name either hold, which never deals another card, or standN, which deals another card until the score is at least N
+     * @return the strategy
+     * @throws Exception if there is no strategy with that name
+     */
+    static Strategy of(String name) throws Exception
+    {
+        if(name.equals("hold"))
+            return score -> false;
+
+        if(name.startsWith("stand"))
+        {
+            try
+            {
+                int stand = Integer.parseInt(name.substring("stand".length()));
+                return score -> score < stand;
+            }
+            catch (NumberFormatException ignored)
+            {
+
+            }
+        }
+
+        throw new Exception("Unknown Strategy: " + name + " (expected hold or standN, such as stand17)");
+    }
+}
@@ -0,0 +1,107 @@
+package history;
+
+import game.Result;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This record represents a finished round or match as it is kept in the match log.
+ * Every entry points back at the previous entry of each of its players, so the history of a player can be
+ * walked from their latest entry without an index of every entry they appear in.
+ * @param type either ROUND or MATCH
+ * @param time when the entry was recorded, in milliseconds since the epoch
+ * @param table the table it was played on
+ * @param round the number of the round, or the number of rounds played for a match
+ * @param seed the seed the round was dealt from, 0 for a match
+ * @param dealerScore the final score of the dealer, 0 for a match
+ * @param winner the seat of the winner, or one of Result.DEALER, Result.EVERYONE and Result.DRAW
+ * @param names the names of the players, in seat order
+ * @param scores the final score of every player in a round, or the high score of every player in a match
+ * @param previous the position of the previous entry of every player in the log, -1 for their first
+ */
+public record Entry(byte type, long time, int table, int round, long seed, int dealerScore, int winner, String[] names, int[] scores, long[] previous)
+{
+    public static final byte ROUND = 1; // A single round
+    public static final byte MATCH = 2; // A whole game, with the high scores
+
+    /**
+     * Get the number of bytes the entry takes in the log
+     * @return the size of the encoded entry
+     */
+    int size()
+    {
+        int size = 1 + 8 + 4 + 4 + 8 + 4 + 4 + 1;
+        for(String name : this.names)
+            size += 2 + name.getBytes(StandardCharsets.UTF_8).length + 4 + 8;
+        return size;
+    }
+
+    /**
+     * Encode the entry
+     * @param buffer the buffer the entry is written to, at its position
+     */
+    void write(ByteBuffer buffer)
+    {
+        buffer.put(this.type).putLong(this.time).putInt(this.table).putInt(this.round)
+                .putLong(this.seed).putInt(this.dealerScore).putInt(this.winner).put((byte) this.names.length);
+        for(int i = 0; i < this.names.length; ++i)
+        {
+            byte[] name = this.names[i].getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) name.length).put(name).putInt(this.scores[i]).putLong(this.previous[i]);
+        }
+    }
+
+    /**
+     * Decode an entry
+     * @param buffer the buffer the entry is read from, at its position
+     * @return the entry
+     */
+    static Entry read(ByteBuffer buffer)
+    {
+        byte type = buffer.get();
+        long time = buffer.getLong();
+        int table = buffer.getInt();
+        int round = buffer.getInt();
+        long seed = buffer.getLong();
+        int dealerScore = buffer.getInt();
+        int winner = buffer.getInt();
+        int count = buffer.get();
+
+        String[] names = new String[count];
+        int[] scores = new int[count];
+        long[] previous = new long[count];
+        for(int i = 0; i < count; ++i)
+        {
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            scores[i] = buffer.getInt();
+            previous[i] = buffer.getLong();
+        }
+        return new Entry(type, time, table, round, seed, dealerScore, winner, names, scores, previous);
+    }
+
+    /**
+     * Get the seat of a player in this entry
+     * @param name the name of the player
+     * @return the seat of the player or -1 if they did not play
+     */
+    public int seat(String name)
+    {
+        for(int i = 0; i < this.names.length; ++i)
+            if(this.names[i].equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Check if the player in a seat won
+     * @param seat the seat of the player
+     * @return true if the player won the round or the match, or false if otherwise
+     */
+    public boolean won(int seat)
+    {
+        return this.winner == seat || this.winner == Result.EVERYONE;
+    }
+}
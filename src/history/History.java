@@ -0,0 +1,345 @@
+package history;
+
+import game.Result;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * This class keeps the history of every round and match played on the server, along with a leaderboard of the players.
+ * Entries are appended to the match log and the leaderboard is kept in memory, indexed by the name of the player.
+ * The leaderboard is also kept in order of rank, so the best players are read without going through every player.
+ * A snapshot of the leaderboard is written from time to time, so only the entries after it have to be read again
+ * when the server starts, and segments the snapshot covers can be compacted away.
+ */
+public class History
+{
+    public static final int SEGMENT_SIZE = 64 << 20; // The size of every segment of the log
+    private static final String SNAPSHOT = "leaderboard.snapshot"; // The file holding the snapshot of the leaderboard
+    private static final int MAGIC = 0x50505331; // Marks a snapshot file
+
+    private final Path directory; // The directory holding the log and the snapshot
+    private final MatchLog log; // The entries of every round and match
+    private final int keep; // The number of segments kept by compaction, 0 to keep every segment
+    private final ObjIntConsumer<IOException> failed; // Told what went wrong, and at which table, when a round could not be appended
+    private final Map<String, Standing> standings = new ConcurrentHashMap<>(); // The leaderboard, by the name of the player, only changed while holding the lock
+    private final NavigableSet<Standing> ranking = new TreeSet<>(Standing::compareRank); // The leaderboard, best first. Guarded by the lock
+    private final ReentrantLock snapshotting = new ReentrantLock(); // Lets a single thread at a time take a snapshot
+    private long forced = 0; // The position every entry before which is on the disk. Guarded by snapshotting
+    private final ReentrantLock lock = new ReentrantLock(); // Guards appends to the log and every change to the leaderboard
+
+    /**
+     * Open the history kept in a directory, creating it if it does not exist yet
+     * @param directory the directory holding the log and the snapshot
+     * @param keep the number of segments kept by compaction, 0 to keep every segment
+     * @param failed told what went wrong, and at which table, when a round could not be appended
+     * @return the history
+     * @throws IOException if the history could not be read
+     */
+    public static History open(Path directory, int keep, ObjIntConsumer<IOException> failed) throws IOException
+    {
+        return new History(directory, SEGMENT_SIZE, keep, failed);
+    }
+
+    /**
+     * Open the history kept in a directory
+     * @param directory the directory holding the log and the snapshot
+     * @param segmentSize the size of every segment of the log
+     * @param keep the number of segments kept by compaction, 0 to keep every segment
+     * @param failed told what went wrong, and at which table, when a round could not be appended
+     * @throws IOException if the history could not be read
+     */
+    History(Path directory, int segmentSize, int keep, ObjIntConsumer<IOException> failed) throws IOException
+    {
+        this.directory = directory;
+        this.log = new MatchLog(directory, segmentSize);
+        this.keep = keep;
+        this.failed = failed;
+
+        long from = readSnapshot(); // Start from the snapshot and read the entries after it
+        this.log.recover(from, this::recover);
+        this.forced = from;
+    }
+
+    /**
+     * Record a finished round
+     * @param table the table it was played on
+     * @param round the number of the round
+     * @param names the names of the players, in seat order
+     * @param result the result of the round
+     */
+    public void round(int table, int round, String[] names, Result result)
+    {
+        append(Entry.ROUND, table, round, result.seed(), result.dealerScore(), result.winner(), names, result.scores());
+    }
+
+    /**
+     * Record a finished match
+     * @param table the table it was played on
+     * @param rounds the number of rounds played
+     * @param names the names of the players, in seat order
+     * @param highScores the high score of every player
+     */
+    public void match(int table, int rounds, String[] names, int[] highScores)
+    {
+        int winner = Result.DRAW, best = -1;
+        for(int i = 0; i < highScores.length; ++i)
+        {
+            if(highScores[i] > best)
+            {
+                best = highScores[i];
+                winner = i;
+            }
+            else if(highScores[i] == best) // Nobody wins a match when the best score is shared
+                winner = Result.DRAW;
+        }
+        append(Entry.MATCH, table, rounds, 0, 0, winner, names, highScores);
+    }
+
+    /**
+     * Append an entry to the log and add it to the leaderboard
+     * @param type either Entry.ROUND or Entry.MATCH
+     * @param table the table it was played on
+     * @param round the number of the round, or the number of rounds played for a match
+     * @param seed the seed the round was dealt from, 0 for a match
+     * @param dealerScore the final score of the dealer, 0 for a match
+     * @param winner the seat of the winner, or one of Result.DEALER, Result.EVERYONE and Result.DRAW
+     * @param names the names of the players, in seat order
+     * @param scores the score of every player
+     */
+    private void append(byte type, int table, int round, long seed, int dealerScore, int winner, String[] names, int[] scores)
+    {
+        this.lock.lock();
+        try
+        {
+            long[] previous = new long[names.length];
+            for(int i = 0; i < names.length; ++i) // Link the entry to the previous entry of every player
+            {
+                Standing standing = this.standings.get(names[i]);
+                previous[i] = standing == null ? -1 : standing.last;
+            }
+
+            Entry entry = new Entry(type, System.currentTimeMillis(), table, round, seed, dealerScore, winner, names, Arrays.copyOf(scores, names.length), previous);
+            index(entry, this.log.append(entry));
+        }
+        catch (IOException e)
+        {
+            this.failed.accept(e, table); // The game goes on without it
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Add an entry to the leaderboard. The lock must be held.
+     * @param entry the entry
+     * @param position the position of the entry in the log
+     */
+    private void index(Entry entry, long position)
+    {
+        for(int i = 0; i < entry.names().length; ++i)
+            add(entry, i, position);
+    }
+
+    /**
+     * Add an entry read again when the server starts to the leaderboard, for the players whose records in the snapshot
+     * do not already include it
+     * @param entry the entry
+     * @param position the position of the entry in the log
+     */
+    private void recover(Entry entry, long position)
+    {
+        for(int i = 0; i < entry.names().length; ++i)
+        {
+            Standing standing = this.standings.get(entry.names()[i]);
+            if(standing == null || standing.last < position) // The snapshot was taken before the entry
+                add(entry, i, position);
+        }
+    }
+
+    /**
+     * Add an entry to the record of one of its players, moving the record to its new rank. The lock must be held.
+     * @param entry the entry
+     * @param seat the seat of the player in the entry
+     * @param position the position of the entry in the log
+     */
+    private void add(Entry entry, int seat, long position)
+    {
+        String name = entry.names()[seat];
+        Standing previous = this.standings.get(name);
+        if(previous != null)
+            this.ranking.remove(previous); // Removed before its replacement is added, since both have the same name
+        else
+            previous = new Standing(name);
+
+        Standing standing = previous.add(entry, seat, position);
+        this.ranking.add(standing);
+        this.standings.put(name, standing);
+    }
+
+    /**
+     * Get the best players
+     * @param count the number of players
+     * @return the records of the best players, best first
+     */
+    public List<Standing> top(int count)
+    {
+        List<Standing> top = new ArrayList<>(Math.max(count, 0));
+        this.lock.lock();
+        try
+        {
+            for(Standing standing : this.ranking)
+            {
+                if(top.size() >= count)
+                    break;
+                top.add(standing);
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+        return top;
+    }
+
+    /**
+     * Get the record of a player
+     * @param name the name of the player
+     * @return the record of the player or null if they have not played
+     */
+    public Standing standing(String name)
+    {
+        return this.standings.get(name);
+    }
+
+    /**
+     * Get the latest entries of a player, following the links between their entries back through the log
+     * @param name the name of the player
+     * @param count the number of entries
+     * @return the entries, latest first
+     */
+    public List<Entry> history(String name, int count)
+    {
+        Standing standing = standing(name);
+        List<Entry> entries = new ArrayList<>();
+        long position = standing == null ? -1 : standing.last;
+        while(position >= 0 && entries.size() < count)
+        {
+            Entry entry = this.log.read(position);
+            if(entry == null) // Older entries were compacted away
+                break;
+
+            entries.add(entry);
+            position = entry.previous()[entry.seat(name)];
+        }
+        return entries;
+    }
+
+    /**
+     * Write the log through to the disk and save a snapshot of the leaderboard, then compact the log.
+     * The leaderboard is copied without holding the lock, so a record may include entries after the end the snapshot
+     * covers, which are skipped for that player when the entries after it are read again.
+     * @throws IOException if the snapshot could not be written
+     */
+    public void snapshot() throws IOException
+    {
+        this.snapshotting.lock();
+        try
+        {
+            long end;
+            this.lock.lock();
+            try
+            {
+                end = this.log.end(); // Every entry before it is on the leaderboard
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+
+            List<Standing> standings = new ArrayList<>(this.standings.values());
+            this.log.force(this.forced); // The snapshot must never cover entries that are not on the disk
+            this.forced = end;
+
+            Path temporary = this.directory.resolve(SNAPSHOT + ".tmp");
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary))))
+            {
+                out.writeInt(MAGIC);
+                out.writeLong(end);
+                out.writeInt(standings.size());
+                for(Standing standing : standings)
+                {
+                    out.writeUTF(standing.name());
+                    out.writeLong(standing.rounds);
+                    out.writeLong(standing.wins);
+                    out.writeLong(standing.matches);
+                    out.writeLong(standing.matchWins);
+                    out.writeLong(standing.last);
+                }
+            }
+            Files.move(temporary, this.directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            if(this.keep > 0)
+            {
+                this.lock.lock();
+                try
+                {
+                    this.log.compact(this.keep, end);
+                }
+                finally
+                {
+                    this.lock.unlock();
+                }
+            }
+        }
+        finally
+        {
+            this.snapshotting.unlock();
+        }
+    }
+
+    /**
+     * Read the snapshot of the leaderboard, if there is one
+     * @return the end of the log covered by the snapshot, 0 if there is no snapshot
+     * @throws IOException if the snapshot could not be read
+     */
+    private long readSnapshot() throws IOException
+    {
+        Path file = this.directory.resolve(SNAPSHOT);
+        if(!Files.exists(file))
+            return 0;
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if(in.readInt() != MAGIC)
+                throw new IOException("Not a leaderboard snapshot: " + file);
+
+            long end = in.readLong();
+            int count = in.readInt();
+            for(int i = 0; i < count; ++i)
+            {
+                Standing standing = new Standing(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                this.standings.put(standing.name(), standing);
+                this.ranking.add(standing);
+            }
+            return end;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package history;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ObjLongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * This class is the append-only log of every finished round and match, kept in memory-mapped segments.
+ * An entry is found by its position, which is the number of its segment times the segment size plus its offset.
+ * Appends are made by one thread at a time, while entries that have been appended can be read or forced by any thread.
+ */
+public class MatchLog
+{
+    private static final Pattern SEGMENT = Pattern.compile("segment-(\\d{8})\\.log");
+
+    private final Path directory; // The directory holding the segments
+    private final int segmentSize; // The size of every segment in bytes
+    private final Map<Integer, Segment> segments = new ConcurrentSkipListMap<>(); // The segments that have not been deleted, by number
+
+    private Segment active; // The segment entries are appended to
+    private int offset; // Where the next entry is appended in the active segment
+
+    /**
+     * Open the log in a directory, creating it if it does not exist yet
+     * @param directory the directory holding the segments
+     * @param segmentSize the size of every segment in bytes
+     * @throws IOException if the segments could not be opened
+     */
+    public MatchLog(Path directory, int segmentSize) throws IOException
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        Files.createDirectories(directory);
+        try(Stream<Path> files = Files.list(directory))
+        {
+            for(Path file : (Iterable<Path>) files::iterator)
+            {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if(matcher.matches())
+                {
+                    int index = Integer.parseInt(matcher.group(1));
+                    this.segments.put(index, new Segment(directory, index, segmentSize));
+                }
+            }
+        }
+    }
+
+    /**
+     * Read every entry from a position to the end of the log, leaving the log ready to append after the last one
+     * @param from the position to start from, such as the end of the log covered by a snapshot
+     * @param entries the consumer of every entry along with its position
+     * @throws IOException if a new segment could not be created
+     */
+    public void recover(long from, ObjLongConsumer<Entry> entries) throws IOException
+    {
+        int index = (int) (from / this.segmentSize);
+        int offset = (int) (from % this.segmentSize);
+        if(this.segments.isEmpty() || first() > index) // Segments before the first one were deleted once the snapshot covered them
+        {
+            index = this.segments.isEmpty() ? index : first();
+            offset = 0;
+        }
+
+        while(true)
+        {
+            Segment segment = this.segments.get(index);
+            if(segment == null) // Nothing has been written here yet
+            {
+                segment = open(index);
+                offset = 0;
+            }
+
+            int length = segment.length(offset);
+            if(length == Segment.NEXT) // The log carries on in the next segment
+            {
+                ++index;
+                offset = 0;
+                continue;
+            }
+            if(length == Segment.END) // The end of the log
+            {
+                this.active = segment;
+                this.offset = offset;
+                return;
+            }
+
+            entries.accept(segment.read(offset), position(index, offset));
+            offset += 4 + length;
+        }
+    }
+
+    /**
+     * Append an entry to the log
+     * @param entry the entry
+     * @return the position of the entry
+     * @throws IOException if the log ran out of room and a new segment could not be created
+     */
+    public long append(Entry entry) throws IOException
+    {
+        int size = entry.size();
+        if(4 + size > this.segmentSize)
+            throw new IOException("Entry of " + size + " bytes is larger than a segment");
+
+        if(this.offset + 4 + size > this.segmentSize) // The entry does not fit, so carry on in the next segment
+        {
+            this.active.seal(this.offset);
+            this.active = open(this.active.index() + 1);
+            this.offset = 0;
+        }
+
+        long position = position(this.active.index(), this.offset);
+        this.active.write(this.offset, entry, size);
+        this.offset += 4 + size;
+        return position;
+    }
+
+    /**
+     * Read the entry at a position
+     * @param position the position of the entry
+     * @return the entry or null if its segment has been deleted
+     */
+    public Entry read(long position)
+    {
+        Segment segment = this.segments.get((int) (position / this.segmentSize));
+        return segment == null ? null : segment.read((int) (position % this.segmentSize));
+    }
+
+    /**
+     * Get the position the next entry will be appended at
+     * @return the end of the log
+     */
+    public long end()
+    {
+        return position(this.active.index(), this.offset);
+    }
+
+    /**
+     * Write the segments holding the entries from a position onward through to the disk. May be called while entries
+     * are appended, and writes every entry appended before it was called.
+     * @param from the position every entry before which is already on the disk
+     */
+    public void force(long from)
+    {
+        int first = (int) (from / this.segmentSize);
+        for(Segment segment : this.segments.values())
+            if(segment.index() >= first)
+                segment.force();
+    }
+
+    /**
+     * Delete the oldest segments, keeping the active segment and the ones before it
+     * @param keep the number of segments to keep, at least 1
+     * @param before the position no deleted segment may reach, such as the end of the log covered by a snapshot
+     * @throws IOException if a segment could not be deleted
+     */
+    public void compact(int keep, long before) throws IOException
+    {
+        int last = Math.min(this.active.index() - keep, (int) (before / this.segmentSize) - 1); // The last segment that may be deleted
+        for(Segment segment : this.segments.values())
+        {
+            if(segment.index() > last)
+                break;
+
+            this.segments.remove(segment.index());
+            segment.delete();
+        }
+    }
+
+    /**
+     * Create a new segment
+     * @param index the number of the segment
+     * @return the segment
+     * @throws IOException if the segment could not be created
+     */
+    private Segment open(int index) throws IOException
+    {
+        Segment segment = new Segment(this.directory, index, this.segmentSize);
+        this.segments.put(index, segment);
+        return segment;
+    }
+
+    /**
+     * Get the number of the first segment that has not been deleted
+     * @return the index of the first segment
+     */
+    private int first()
+    {
+        return this.segments.keySet().iterator().next();
+    }
+
+    /**
+     * Get the position of an offset in a segment
+     * @param index the number of the segment
+     * @param offset the offset in the segment
+     * @return the position in the log
+     */
+    private long position(int index, int offset)
+    {
+        return (long) index * this.segmentSize + offset;
+    }
+}
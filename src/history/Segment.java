@@ -0,0 +1,132 @@
+package history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents one file of the match log, mapped into memory.
+ * Every entry is written as its length followed by its bytes. The length is written last, so an entry that was
+ * only partly written when the server stopped reads as the end of the segment.
+ */
+public class Segment
+{
+    static final int END = 0; // The length read where nothing has been written yet
+    static final int NEXT = -1; // The length marking that the log carries on in the next segment
+
+    private final int index; // The number of the segment in the log
+    private final Path path; // The file of the segment
+    private final MappedByteBuffer buffer; // The contents of the file
+
+    /**
+     * Open a segment, creating it if it does not exist yet
+     * @param directory the directory of the log
+     * @param index the number of the segment in the log
+     * @param size the size of the segment in bytes
+     * @throws IOException if the segment could not be mapped
+     */
+    public Segment(Path directory, int index, int size) throws IOException
+    {
+        this.index = index;
+        this.path = path(directory, index);
+        try(FileChannel channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // The mapping stays valid once the channel is closed
+        }
+    }
+
+    /**
+     * Get the file of a segment
+     * @param directory the directory of the log
+     * @param index the number of the segment
+     * @return the path of the segment
+     */
+    static Path path(Path directory, int index)
+    {
+        return directory.resolve(String.format("segment-%08d.log", index));
+    }
+
+    /**
+     * Get the number of the segment in the log
+     * @return the index of the segment
+     */
+    public int index()
+    {
+        return this.index;
+    }
+
+    /**
+     * Get the size of the segment
+     * @return the capacity in bytes
+     */
+    public int size()
+    {
+        return this.buffer.capacity();
+    }
+
+    /**
+     * Read the length stored at an offset
+     * @param offset the offset in the segment
+     * @return the length of the entry, END if there is none or NEXT if the log carries on in the next segment
+     */
+    int length(int offset)
+    {
+        if(offset + 4 > this.buffer.capacity())
+            return NEXT;
+        return this.buffer.getInt(offset);
+    }
+
+    /**
+     * Read the entry at an offset
+     * @param offset the offset of its length in the segment
+     * @return the entry
+     */
+    Entry read(int offset)
+    {
+        return Entry.read(this.buffer.duplicate().position(offset + 4));
+    }
+
+    /**
+     * Write an entry at an offset, writing its length last
+     * @param offset the offset of its length in the segment
+     * @param entry the entry
+     * @param size the size of the entry in bytes
+     */
+    void write(int offset, Entry entry, int size)
+    {
+        ByteBuffer buffer = this.buffer.duplicate().position(offset + 4);
+        entry.write(buffer);
+        this.buffer.putInt(offset, size); // Only now can the entry be read
+    }
+
+    /**
+     * Mark that the log carries on in the next segment
+     * @param offset the offset the next entry would have been written at
+     */
+    void seal(int offset)
+    {
+        if(offset + 4 <= this.buffer.capacity())
+            this.buffer.putInt(offset, NEXT);
+    }
+
+    /**
+     * Write everything in the segment through to the disk
+     */
+    void force()
+    {
+        this.buffer.force();
+    }
+
+    /**
+     * Delete the file of the segment. Entries that were already read stay readable until they are no longer used.
+     * @throws IOException if the file could not be deleted
+     */
+    void delete() throws IOException
+    {
+        Files.deleteIfExists(this.path);
+    }
+}
@@ -0,0 +1,117 @@
+package history;
+
+/**
+ * This class represents the record of a single player on the leaderboard.
+ * A record never changes once created, so it can be handed out and read by any thread.
+ */
+public class Standing
+{
+    private final String name; // The name of the player
+    final long rounds; // The rounds played
+    final long wins; // The rounds won
+    final long matches; // The matches played
+    final long matchWins; // The matches won
+    final long last; // The position of the latest entry of the player in the log, -1 if there is none
+
+    /**
+     * Create the record of a player who has not played yet
+     * @param name the name of the player
+     */
+    Standing(String name)
+    {
+        this(name, 0, 0, 0, 0, -1);
+    }
+
+    /**
+     * Create a record
+     * @param name the name of the player
+     * @param rounds the rounds played
+     * @param wins the rounds won
+     * @param matches the matches played
+     * @param matchWins the matches won
+     * @param last the position of the latest entry of the player in the log, -1 if there is none
+     */
+    Standing(String name, long rounds, long wins, long matches, long matchWins, long last)
+    {
+        this.name = name;
+        this.rounds = rounds;
+        this.wins = wins;
+        this.matches = matches;
+        this.matchWins = matchWins;
+        this.last = last;
+    }
+
+    /**
+     * Add an entry to the record
+     * @param entry the entry the player played in
+     * @param seat the seat of the player in the entry
+     * @param position the position of the entry in the log
+     * @return the record with the entry added
+     */
+    Standing add(Entry entry, int seat, long position)
+    {
+        int won = entry.won(seat) ? 1 : 0;
+        if(entry.type() == Entry.ROUND)
+            return new Standing(this.name, this.rounds + 1, this.wins + won, this.matches, this.matchWins, position);
+        return new Standing(this.name, this.rounds, this.wins, this.matches + 1, this.matchWins + won, position);
+    }
+
+    /**
+     * Check if this record ranks above another one: more rounds won, then fewer rounds played, then by name
+     * @param other the other record
+     * @return a negative number if this record ranks above the other one, a positive number if below
+     */
+    int compareRank(Standing other)
+    {
+        if(this.wins != other.wins)
+            return Long.compare(other.wins, this.wins);
+        if(this.rounds != other.rounds)
+            return Long.compare(this.rounds, other.rounds);
+        return this.name.compareTo(other.name);
+    }
+
+    /**
+     * Get the name of the player
+     * @return the name of the player
+     */
+    public String name()
+    {
+        return this.name;
+    }
+
+    /**
+     * Get the rounds played
+     * @return the number of rounds played
+     */
+    public long rounds()
+    {
+        return this.rounds;
+    }
+
+    /**
+     * Get the rounds won
+     * @return the number of rounds won
+     */
+    public long wins()
+    {
+        return this.wins;
+    }
+
+    /**
+     * Get the matches played
+     * @return the number of matches played
+     */
+    public long matches()
+    {
+        return this.matches;
+    }
+
+    /**
+     * Get the matches won
+     * @return the number of matches won
+     */
+    public long matchWins()
+    {
+        return this.matchWins;
+    }
+}
@@ -0,0 +1,277 @@
+package journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This interface represents an event in the journal of a table.
+ * Every event is encoded as its type, the id of its table and its own fields.
+ */
+public sealed interface Event
+{
+    byte OPEN = 1;
+    byte ROUND = 2;
+    byte DEALT = 3;
+    byte DECISION = 4;
+    byte OUTCOME = 5;
+    byte CLOSE = 6;
+    byte SHUFFLE = 7;
+
+    /**
+     * Get the table the event happened at
+     * @return the id of the table
+     */
+    int table();
+
+    /**
+     * Encode the fields of the event after its type and table
+     * @param buffer the buffer the fields are written to
+     */
+    void write(ByteBuffer buffer);
+
+    /**
+     * Get the most bytes the fields of the event can take once encoded
+     * @return the size of the encoded fields, at most
+     */
+    default int size()
+    {
+        return 64;
+    }
+
+    /**
+     * Get the type of the event
+     * @return one of the event types
+     */
+    byte type();
+
+    /**
+     * A table was opened
+     * @param table the id of the table
+     * @param seed the seed of the random source picking the seed of every round
+     * @param maxPlayers the maximum players on the table
+     * @param rounds the number of rounds in the game
+     * @param decks the number of decks in the shoe
+     * @param penetration the percentage of the shoe dealt before it is shuffled
+     * @param names the names of the players, in seat order
+     * @param sessions the session tokens of the players, in seat order, each empty if the player has none
+     */
+    record Open(int table, long seed, int maxPlayers, int rounds, int decks, int penetration, String[] names, String[] sessions) implements Event
+    {
+        @Override
+        public void write(ByteBuffer buffer)
+        {
+            buffer.putLong(this.seed).put((byte) this.maxPlayers).putInt(this.rounds).put((byte) this.decks).put((byte) this.penetration)
+                    .put((byte) this.names.length);
+            for(int i = 0; i < this.names.length; ++i)
+            {
+                byte[] name = this.names[i].getBytes(StandardCharsets.UTF_8);
+                byte[] session = this.sessions[i].getBytes(StandardCharsets.UTF_8);
+                buffer.putShort((short) name.length).put(name).putShort((short) session.length).put(session);
+            }
+        }
+
+        @Override
+        public int size()
+        {
+            int size = 24;
+            for(int i = 0; i < this.names.length; ++i) // A string is at most three bytes for every char once encoded
+                size += 4 + 3 * (this.names[i].length() + this.sessions[i].length());
+            return size;
+        }
+
+        @Override
+        public byte type()
+        {
+            return OPEN;
+        }
+    }
+
+    /**
+     * A round started
+     * @param table the id of the table
+     * @param round the number of the round, starting at 1
+     * @param seed the seed the round is dealt from
+     */
+    record Round(int table, int round, long seed) implements Event
+    {
+        @Override
+        public void write(ByteBuffer buffer)
+        {
+            buffer.putInt(this.round).putLong(this.seed);
+        }
+
+        @Override
+        public byte type()
+        {
+            return ROUND;
+        }
+    }
+
+    /**
+     * A card was dealt
+     * @param table the id of the table
+     * @param seat the seat the card was dealt to, or Result.DEALER for the dealer
+     * @param draw the number of cards drawn before it in the round
+     * @param card the id of the card
+     * @param slot the position in the shoe the card was drawn from
+     */
+    record Dealt(int table, int seat, int draw, int card, int slot) implements Event
+    {
+        @Override
+        public void write(ByteBuffer buffer)
+        {
+            buffer.put((byte) this.seat).put((byte) this.draw).put((byte) this.card).putShort((short) this.slot);
+        }
+
+        @Override
+        public byte type()
+        {
+            return DEALT;
+        }
+    }
+
+    /**
+     * A player decided whether to deal or hold
+     * @param table the id of the table
+     * @param seat the seat of the player
+     * @param deal true if the player dealt another card or false if they held
+     * @param timedOut true if the player held because they did not answer in time
+     */
+    record Decision(int table, int seat, boolean deal, boolean timedOut) implements Event
+    {
+        @Override
+        public void write(ByteBuffer buffer)
+        {
+            buffer.put((byte) this.seat).put((byte) ((this.deal ? 1 : 0) | (this.timedOut ? 2 : 0)));
+        }
+
+        @Override
+        public byte type()
+        {
+            return DECISION;
+        }
+    }
+
+    /**
+     * A round finished
+     * @param table the id of the table
+     * @param round the number of the round
+     * @param winner the seat of the winner, or one of Result.DEALER, Result.EVERYONE and Result.DRAW
+     * @param dealerScore the final score of the dealer
+     * @param scores the final score of every player
+     * @param highScores the high score of every player after the round
+     */
+    record Outcome(int table, int round, int winner, int dealerScore, int[] scores, int[] highScores) implements Event
+    {
+        @Override
+        public void write(ByteBuffer buffer)
+        {
+            buffer.putInt(this.round).put((byte) this.winner).put((byte) this.dealerScore).put((byte) this.scores.length);
+            for(int i = 0; i < this.scores.length; ++i)
+                buffer.put((byte) this.scores[i]).putInt(this.highScores[i]);
+        }
+
+        @Override
+        public byte type()
+        {
+            return OUTCOME;
+        }
+    }
+
+    /**
+     * The shoe of a table was shuffled at the end of a round
+     * @param table the id of the table
+     */
+    record Shuffle(int table) implements Event
+    {
+        @Override
+        public void write(ByteBuffer buffer)
+        {
+
+        }
+
+        @Override
+        public byte type()
+        {
+            return SHUFFLE;
+        }
+    }
+
+    /**
+     * A table finished its game
+     * @param table the id of the table
+     */
+    record Close(int table) implements Event
+    {
+        @Override
+        public void write(ByteBuffer buffer)
+        {
+
+        }
+
+        @Override
+        public byte type()
+        {
+            return CLOSE;
+        }
+    }
+
+    /**
+     * Decode an event
+     * @param buffer the buffer holding the event, at its type
+     * @return the event
+     * @throws IllegalArgumentException if the type of the event is not known
+     */
+    static Event read(ByteBuffer buffer)
+    {
+        byte type = buffer.get();
+        int table = buffer.getInt();
+        switch(type)
+        {
+            case OPEN:
+                long seed = buffer.getLong();
+                int maxPlayers = buffer.get();
+                int rounds = buffer.getInt();
+                int decks = buffer.get();
+                int penetration = buffer.get();
+                String[] names = new String[buffer.get()];
+                String[] sessions = new String[names.length];
+                for(int i = 0; i < names.length; ++i)
+                {
+                    byte[] name = new byte[buffer.getShort()];
+                    buffer.get(name);
+                    names[i] = new String(name, StandardCharsets.UTF_8);
+                    byte[] session = new byte[buffer.getShort()];
+                    buffer.get(session);
+                    sessions[i] = new String(session, StandardCharsets.UTF_8);
+                }
+                return new Open(table, seed, maxPlayers, rounds, decks, penetration, names, sessions);
+            case ROUND:
+                return new Round(table, buffer.getInt(), buffer.getLong());
+            case DEALT:
+                return new Dealt(table, buffer.get(), buffer.get(), buffer.get(), buffer.getShort());
+            case DECISION:
+                int seat = buffer.get();
+                int flags = buffer.get();
+                return new Decision(table, seat, (flags & 1) != 0, (flags & 2) != 0);
+            case OUTCOME:
+                int round = buffer.getInt();
+                int winner = buffer.get();
+                int dealerScore = buffer.get();
+                int[] scores = new int[buffer.get()];
+                int[] highScores = new int[scores.length];
+                for(int i = 0; i < scores.length; ++i)
+                {
+                    scores[i] = buffer.get();
+                    highScores[i] = buffer.getInt();
+                }
+                return new Outcome(table, round, winner, dealerScore, scores, highScores);
+            case CLOSE:
+                return new Close(table);
+            case SHUFFLE:
+                return new Shuffle(table);
+            default:
+                throw new IllegalArgumentException("Unknown Event Type: " + type);
+        }
+    }
+}
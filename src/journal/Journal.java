@@ -0,0 +1,470 @@
+package journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * This class writes the events of every table to a binary journal, kept as a series of segment files.
+ * Events are framed by their length and a checksum, and written by one thread which forces a whole batch of events
+ * to the disk at once, so tables waiting for their events to be durable share a single fsync.
+ * A full segment is closed and the next one started, and a segment whose tables have all finished is deleted, so the
+ * journal only grows with the games still being played.
+ * When the journal is opened, the tables whose games were interrupted are read back from it so they can be resumed.
+ */
+public class Journal
+{
+    private static final int HEADER = 8; // The length and the checksum in front of every event
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024; // The bytes written to a segment before the next one is started, unless another size is given
+    private static final Pattern SEGMENT = Pattern.compile("journal-(\\d{8})\\.bin"); // The names of the segments
+
+    /**
+     * An event waiting to be written
+     * @param table the id of the table the event happened at
+     * @param type the type of the event
+     * @param bytes the framed event
+     */
+    private record Frame(int table, byte type, byte[] bytes)
+    {
+    }
+
+    /**
+     * Someone waiting for the events appended before they asked to be on the disk
+     * @param target the number of events which must be on the disk
+     * @param future completed once they are
+     */
+    private record Waiter(long target, CompletableFuture<Void> future)
+    {
+    }
+
+    /**
+     * A table whose game was interrupted
+     * @param table the id of the table
+     * @param seed the seed of the random source picking the seed of every round
+     * @param maxPlayers the maximum players on the table
+     * @param rounds the number of rounds in the game
+     * @param decks the number of decks in the shoe
+     * @param penetration the percentage of the shoe dealt before it is shuffled
+     * @param names the names of the players, in seat order
+     * @param sessions the session tokens of the players, in seat order, each empty if the player had none
+     * @param played the number of rounds that were finished
+     * @param highScores the high score of every player after those rounds
+     * @param dealt the positions in the shoe of the cards dealt in each finished round since it was last shuffled
+     */
+    public record Recovered(int table, long seed, int maxPlayers, int rounds, int decks, int penetration, String[] names, String[] sessions,
+                            int played, int[] highScores, int[][] dealt)
+    {
+    }
+
+    private final Path directory; // The directory of the segments
+    private final long segmentSize; // The bytes written to a segment before the next one is started
+    private final Consumer<Exception> stopped; // Told what went wrong if the writer stops
+    private FileChannel channel; // The segment being written, only used by the writer once the journal is open
+    private int index; // The number of the segment being written
+    private final TreeMap<Integer, Set<Integer>> segments = new TreeMap<>(); // The tables with events in each segment, only used by the writer
+    private final Set<Integer> open = new HashSet<>(); // The tables opened and not closed yet, only used by the writer
+    private final LinkedBlockingQueue<Frame> queue = new LinkedBlockingQueue<>(); // The framed events waiting to be written, in the order they were appended
+    private final ReentrantLock lock = new ReentrantLock(); // Keeps the queue in the order of the sequence numbers and guards the durable count and the waiters
+    private final ArrayDeque<Waiter> waiting = new ArrayDeque<>(); // Waiting for their events to be on the disk, in the order of their targets
+    private long appended = 0; // The number of events appended
+    private long durable = 0; // The number of events forced to the disk
+    private volatile boolean closed = false; // Whether the writer has stopped
+
+    private final Map<Integer, Recovered> recovered = new LinkedHashMap<>(); // The tables whose games were interrupted
+    private final Map<Integer, List<Integer>> dealing = new HashMap<>(); // The positions in the shoe of the cards dealt so far in the round each table is playing
+    private int lastTable = 0; // The highest table id in the journal
+
+    /**
+     * Open the journal in a directory, reading back the tables whose games were interrupted
+     * @param directory the directory holding the journal
+     * @param stopped told what went wrong if the writer stops, after which the games go on without the journal
+     * @return the journal, ready to append to
+     * @throws IOException if the journal could not be read or opened
+     */
+    public static Journal open(Path directory, Consumer<Exception> stopped) throws IOException
+    {
+        Files.createDirectories(directory);
+        return new Journal(directory, SEGMENT_SIZE, stopped);
+    }
+
+    /**
+     * Open the journal in a directory, carrying on in its last segment
+     * @param directory the directory holding the segments
+     * @param segmentSize the bytes written to a segment before the next one is started
+     * @param stopped told what went wrong if the writer stops
+     * @throws IOException if the journal could not be read or opened
+     */
+    Journal(Path directory, long segmentSize, Consumer<Exception> stopped) throws IOException
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.stopped = stopped;
+        List<Integer> indexes = segments(directory);
+        long end = 0;
+        for(int index : indexes)
+        {
+            Set<Integer> tables = this.segments.computeIfAbsent(index, i -> new HashSet<>());
+            end = read(segment(directory, index), event ->
+            {
+                tables.add(event.table());
+                if(event instanceof Event.Open)
+                    this.open.add(event.table());
+                else if(event instanceof Event.Close)
+                    this.open.remove(event.table());
+                recover(event);
+            });
+        }
+
+        this.index = indexes.isEmpty() ? 1 : indexes.get(indexes.size() - 1);
+        this.segments.computeIfAbsent(this.index, i -> new HashSet<>());
+        this.channel = FileChannel.open(segment(directory, this.index), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.truncate(end); // Drop an event that was only partly written when the server stopped
+        this.channel.position(end);
+        prune();
+
+        Thread writer = new Thread(this::write, "Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Get the segments in a directory
+     * @param directory the directory of the journal
+     * @return the numbers of the segments, in the order they were written
+     * @throws IOException if the directory could not be listed
+     */
+    private static List<Integer> segments(Path directory) throws IOException
+    {
+        List<Integer> indexes = new ArrayList<>();
+        try(Stream<Path> files = Files.list(directory))
+        {
+            files.forEach(file ->
+            {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if(matcher.matches())
+                    indexes.add(Integer.parseInt(matcher.group(1)));
+            });
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * Get the file of a segment
+     * @param directory the directory of the journal
+     * @param index the number of the segment
+     * @return the path of the segment
+     */
+    private static Path segment(Path directory, int index)
+    {
+        return directory.resolve(String.format("journal-%08d.bin", index));
+    }
+
+    /**
+     * Read every event in the segments of a journal
+     * @param directory the directory of the journal
+     * @param events the consumer of every event, in the order they were appended
+     * @throws IOException if a segment could not be read
+     */
+    public static void readAll(Path directory, Consumer<Event> events) throws IOException
+    {
+        for(int index : segments(directory))
+            read(segment(directory, index), events);
+    }
+
+    /**
+     * Read every event in a journal file
+     * @param file the journal file
+     * @param events the consumer of every event, in the order they were appended
+     * @return the end of the last complete event in the file
+     * @throws IOException if the file could not be read
+     */
+    public static long read(Path file, Consumer<Event> events) throws IOException
+    {
+        ByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        CRC32C checksum = new CRC32C();
+        while(buffer.remaining() >= HEADER)
+        {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int expected = buffer.getInt();
+            if(length <= 0 || length > buffer.remaining()) // The event was cut short
+                return start;
+
+            ByteBuffer body = buffer.slice(buffer.position(), length);
+            checksum.reset();
+            checksum.update(body.duplicate());
+            if((int) checksum.getValue() != expected) // The event was only partly written
+                return start;
+
+            events.accept(Event.read(body));
+            buffer.position(buffer.position() + length);
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Follow the state of the tables while the journal is read back
+     * @param event the next event in the journal
+     */
+    private void recover(Event event)
+    {
+        this.lastTable = Math.max(this.lastTable, event.table());
+        if(event instanceof Event.Open open)
+            this.recovered.put(open.table(), new Recovered(open.table(), open.seed(), open.maxPlayers(), open.rounds(), open.decks(), open.penetration(),
+                    open.names(), open.sessions(), 0, new int[open.names().length], new int[0][]));
+        else if(event instanceof Event.Round) // Cards dealt in a round that was started again are back in the shoe
+            this.dealing.put(event.table(), new ArrayList<>());
+        else if(event instanceof Event.Dealt dealt && this.dealing.containsKey(dealt.table()))
+            this.dealing.get(dealt.table()).add(dealt.slot());
+        else if(event instanceof Event.Outcome outcome)
+        {
+            List<Integer> cards = this.dealing.remove(outcome.table());
+            int[] round = cards == null ? new int[0] : cards.stream().mapToInt(Integer::intValue).toArray();
+            this.recovered.computeIfPresent(outcome.table(), (id, table) -> new Recovered(id, table.seed(), table.maxPlayers(), table.rounds(),
+                    table.decks(), table.penetration(), table.names(), table.sessions(), outcome.round(), outcome.highScores(), append(table.dealt(), round)));
+        }
+        else if(event instanceof Event.Shuffle) // The shoe is full again
+            this.recovered.computeIfPresent(event.table(), (id, table) -> new Recovered(id, table.seed(), table.maxPlayers(), table.rounds(),
+                    table.decks(), table.penetration(), table.names(), table.sessions(), table.played(), table.highScores(), new int[0][]));
+        else if(event instanceof Event.Close)
+        {
+            this.recovered.remove(event.table());
+            this.dealing.remove(event.table());
+        }
+    }
+
+    /**
+     * Add a round to the cards dealt since the shoe was last shuffled
+     * @param dealt the cards dealt in each round so far
+     * @param round the cards dealt in the next round
+     * @return the cards dealt in each round, including the next one
+     */
+    private static int[][] append(int[][] dealt, int[] round)
+    {
+        int[][] rounds = Arrays.copyOf(dealt, dealt.length + 1);
+        rounds[dealt.length] = round;
+        return rounds;
+    }
+
+    /**
+     * Get the tables whose games were interrupted when the journal was last written to
+     * @return the tables, in the order they were opened
+     */
+    public Collection<Recovered> recovered()
+    {
+        return this.recovered.values();
+    }
+
+    /**
+     * Get the highest table id in the journal, so new tables do not reuse an id
+     * @return the highest table id, 0 if there is none
+     */
+    public int lastTable()
+    {
+        return this.lastTable;
+    }
+
+    /**
+     * Append an event. It is written in the background, call durable or sync to wait until it is on the disk.
+     * @param event the event
+     */
+    public void append(Event event)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + 5 + event.size()); // The type and the table come before the fields
+        buffer.position(HEADER);
+        buffer.put(event.type()).putInt(event.table());
+        event.write(buffer);
+
+        int length = buffer.position() - HEADER;
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), HEADER, length);
+        buffer.putInt(0, length).putInt(4, (int) checksum.getValue());
+        byte[] frame = Arrays.copyOf(buffer.array(), buffer.position());
+
+        this.lock.lock();
+        try
+        {
+            ++this.appended;
+            this.queue.add(new Frame(event.table(), event.type(), frame)); // Queued under the lock so the queue is in the order of the count
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Find out when every event appended so far is on the disk, without waiting for it. Everyone asking before the
+     * same batch is forced shares its fsync.
+     * @return a future completed once the events are on the disk, or once the journal has stopped
+     */
+    public CompletableFuture<Void> durable()
+    {
+        this.lock.lock();
+        try
+        {
+            if(this.durable >= this.appended || this.closed) // Nothing to wait for
+                return CompletableFuture.completedFuture(null);
+
+            Waiter waiter = new Waiter(this.appended, new CompletableFuture<>());
+            this.waiting.add(waiter);
+            return waiter.future();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until every event appended so far is on the disk
+     */
+    public void sync()
+    {
+        durable().join();
+    }
+
+    /**
+     * Close the full segment and start the next one, then delete the segments that are no longer needed
+     * @throws IOException if the next segment could not be opened
+     */
+    private void roll() throws IOException
+    {
+        this.channel.force(false);
+        this.channel.close();
+        ++this.index;
+        this.channel = FileChannel.open(segment(this.directory, this.index), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.segments.put(this.index, new HashSet<>());
+        prune();
+    }
+
+    /**
+     * Delete the earlier segments whose tables have all finished their games. The segment holding the highest table id
+     * is kept until a later segment holds a higher one, so the tables opened next never reuse an id.
+     * @throws IOException if a segment could not be deleted
+     */
+    private void prune() throws IOException
+    {
+        int highest = 0, newest = this.index;
+        for(Map.Entry<Integer, Set<Integer>> segment : this.segments.entrySet())
+            for(int table : segment.getValue())
+                if(table >= highest)
+                {
+                    highest = table;
+                    newest = segment.getKey();
+                }
+
+        Iterator<Map.Entry<Integer, Set<Integer>>> each = this.segments.entrySet().iterator();
+        while(each.hasNext())
+        {
+            Map.Entry<Integer, Set<Integer>> segment = each.next();
+            int index = segment.getKey();
+            if(index == this.index || index == newest || segment.getValue().stream().anyMatch(this.open::contains))
+                continue;
+
+            Files.deleteIfExists(segment(this.directory, index));
+            each.remove();
+        }
+    }
+
+    /**
+     * Write the waiting events in batches, forcing each batch to the disk once
+     */
+    private void write()
+    {
+        List<Frame> batch = new ArrayList<>();
+        try
+        {
+            while(true)
+            {
+                batch.add(this.queue.take()); // Wait for the next event
+                this.queue.drainTo(batch); // along with everything queued behind it
+
+                for(Frame frame : batch)
+                {
+                    if(this.channel.position() > 0 && this.channel.position() + frame.bytes().length > this.segmentSize)
+                        roll();
+
+                    ByteBuffer buffer = ByteBuffer.wrap(frame.bytes());
+                    while(buffer.hasRemaining())
+                        this.channel.write(buffer);
+
+                    this.segments.get(this.index).add(frame.table());
+                    if(frame.type() == Event.OPEN)
+                        this.open.add(frame.table());
+                    else if(frame.type() == Event.CLOSE)
+                        this.open.remove(frame.table());
+                }
+                this.channel.force(false); // One fsync for the whole batch
+
+                List<Waiter> done = new ArrayList<>();
+                this.lock.lock();
+                try
+                {
+                    this.durable += batch.size();
+                    while(!this.waiting.isEmpty() && this.waiting.peek().target() <= this.durable)
+                        done.add(this.waiting.poll());
+                }
+                finally
+                {
+                    this.lock.unlock();
+                }
+                for(Waiter waiter : done) // Completed outside the lock, since whatever waited on them may run here
+                    waiter.future().complete(null);
+                batch.clear();
+            }
+        }
+        catch (IOException | InterruptedException e)
+        {
+            this.stopped.accept(e);
+        }
+        finally
+        {
+            List<Waiter> done;
+            this.lock.lock();
+            try
+            {
+                this.closed = true;
+                done = new ArrayList<>(this.waiting); // Nobody waits for a journal that has stopped
+                this.waiting.clear();
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+            for(Waiter waiter : done)
+                waiter.future().complete(null);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package journal;
+
+import game.Card;
+import game.Deck;
+import game.Game;
+import game.Host;
+import game.Player;
+import game.Result;
+import game.Seat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+import static game.Constants.*;
+
+/**
+ * This class replays the games in a journal with the rules of Pirates Pontoon, without a server.
+ * Every round is dealt again from the seed of its table, with the players making the decisions that were journaled,
+ * and the cards and the outcome are checked against the journal, so any round can be reproduced exactly.
+ * A round that was interrupted by the server stopping is left out, since it was played again from its start when the game resumed.
+ */
+public class Replay
+{
+    /**
+     * A round as it was journaled
+     * @param start the start of the round
+     * @param dealt the cards dealt in the round, in the order they were drawn
+     * @param decisions the decisions of the players in the round, in the order they were made
+     * @param outcome the outcome of the round
+     */
+    private record Round(Event.Round start, List<Event.Dealt> dealt, List<Event.Decision> decisions, Event.Outcome outcome)
+    {
+    }
+
+    /**
+     * A game as it was journaled
+     * @param open the opening of the table
+     * @param rounds the rounds that were finished, by round number
+     */
+    private record Match(Event.Open open, Map<Integer, Round> rounds)
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        if(args.length < 1)
+            throw new Exception("Proper Arguments: Journal_File_Or_Directory [Table]");
+
+        Path file = Path.of(args[0]);
+        int only = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        Map<Integer, Match> matches = new LinkedHashMap<>();
+        Map<Integer, Round> playing = new HashMap<>(); // The round each table is in the middle of
+        Consumer<Event> reader = event ->
+        {
+            if(only != 0 && event.table() != only)
+                return;
+
+            if(event instanceof Event.Open open)
+                matches.put(open.table(), new Match(open, new HashMap<>()));
+            else if(event instanceof Event.Round start) // Starting a round again drops the attempt that was interrupted
+                playing.put(start.table(), new Round(start, new ArrayList<>(), new ArrayList<>(), null));
+            else if(event instanceof Event.Dealt dealt && playing.containsKey(dealt.table()))
+                playing.get(dealt.table()).dealt().add(dealt);
+            else if(event instanceof Event.Decision decision && playing.containsKey(decision.table()))
+                playing.get(decision.table()).decisions().add(decision);
+            else if(event instanceof Event.Outcome outcome)
+            {
+                Round round = playing.remove(outcome.table());
+                Match match = matches.get(outcome.table());
+                if(round != null && match != null)
+                    match.rounds().put(outcome.round(), new Round(round.start(), round.dealt(), round.decisions(), outcome));
+            }
+        };
+        if(Files.isDirectory(file)) // Every segment of the journal, in the order they were written
+            Journal.readAll(file, reader);
+        else
+            Journal.read(file, reader);
+
+        int mismatches = 0;
+        for(Match match : matches.values())
+            mismatches += replay(match);
+
+        System.out.println(mismatches == 0 ? "Every round matches the journal" : mismatches + " rounds do not match the journal");
+        if(mismatches != 0)
+            System.exit(1);
+    }
+
+    /**
+     * Replay the finished rounds of a game
+     * @param match the game as it was journaled
+     * @return the number of rounds that did not match the journal
+     */
+    private static int replay(Match match)
+    {
+        Event.Open open = match.open();
+        Script script = new Script(open.names());
+        Game game = new Game(script, open.rounds(), new SplittableRandom(open.seed()), open.decks(), open.penetration());
+        game.set(script.seats());
+
+        int mismatches = 0;
+        for(int number = 1; number <= open.rounds() && match.rounds().containsKey(number); ++number)
+        {
+            Round round = match.rounds().get(number);
+            script.load(round);
+            Result result = game.playRound();
+            game.reset();
+
+            Event.Outcome outcome = round.outcome();
+            if(script.mismatch == null && result.winner() != outcome.winner())
+                script.mismatch = "the winner was " + result.winner() + " instead of " + outcome.winner();
+            if(script.mismatch == null && result.dealerScore() != outcome.dealerScore())
+                script.mismatch = "the dealer scored " + result.dealerScore() + " instead of " + outcome.dealerScore();
+            if(script.mismatch == null && !Arrays.equals(result.scores(), outcome.scores()))
+                script.mismatch = "the scores were " + Arrays.toString(result.scores()) + " instead of " + Arrays.toString(outcome.scores());
+            if(script.mismatch == null && script.dealt != round.dealt().size())
+                script.mismatch = script.dealt + " cards were dealt instead of " + round.dealt().size();
+
+            if(script.mismatch == null)
+                System.out.println("Table " + open.table() + " round " + number + " verified with seed " + round.start().seed());
+            else
+            {
+                System.out.println("Table " + open.table() + " round " + number + " MISMATCH: " + script.mismatch);
+                ++mismatches;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * This class hosts a replayed game, answering for the players with their journaled decisions and checking every card dealt
+     */
+    private static class Script implements Host
+    {
+        private final Replayed[] seats; // The seats of the players
+        private Round round; // The round being replayed
+        private final Map<Integer, ArrayDeque<Boolean>> decisions = new HashMap<>(); // The decisions left to make in the round, by seat
+        private int dealt; // The number of cards dealt so far in the round
+        private String mismatch; // How the round differs from the journal, null if it does not
+
+        /**
+         * Create the host of a replayed game
+         * @param names the names of the players, in seat order
+         */
+        private Script(String[] names)
+        {
+            this.seats = new Replayed[names.length];
+            for(int i = 0; i < names.length; ++i)
+                this.seats[i] = new Replayed(new Player(names[i]));
+        }
+
+        /**
+         * Get ready to replay a round. A seat is taken in the round if its player was dealt a card in it.
+         * @param round the round as it was journaled
+         */
+        private void load(Round round)
+        {
+            this.round = round;
+            this.dealt = 0;
+            this.mismatch = null;
+            this.decisions.clear();
+
+            for(Replayed seat : this.seats)
+                seat.ready = false;
+            for(Event.Dealt card : round.dealt())
+                if(card.seat() >= 0 && card.seat() < this.seats.length)
+                    this.seats[card.seat()].ready = true;
+            for(Event.Decision decision : round.decisions())
+                this.decisions.computeIfAbsent(decision.seat(), seat -> new ArrayDeque<>()).add(decision.deal());
+        }
+
+        @Override
+        public Seat[] seats()
+        {
+            return this.seats;
+        }
+
+        @Override
+        public void broadcast(String message)
+        {
+
+        }
+
+        @Override
+        public String ask(Seat seat)
+        {
+            int index = Arrays.asList(this.seats).indexOf(seat);
+            ArrayDeque<Boolean> left = this.decisions.get(index);
+            return left != null && !left.isEmpty() && left.poll() ? DEAL : HOLD; // Hold once the journaled decisions run out
+        }
+
+        @Override
+        public void started(int round, long seed)
+        {
+            if(this.mismatch == null && seed != this.round.start().seed())
+                this.mismatch = "the seed was " + seed + " instead of " + this.round.start().seed();
+        }
+
+        @Override
+        public void dealt(int seat, Card card, int slot)
+        {
+            int draw = this.dealt++;
+            if(this.mismatch != null)
+                return;
+
+            if(draw >= this.round.dealt().size())
+            {
+                this.mismatch = "card " + draw + " was dealt but never journaled";
+                return;
+            }
+
+            Event.Dealt expected = this.round.dealt().get(draw);
+            if(expected.seat() != seat || expected.card() != Deck.id(card) || expected.slot() != slot)
+                this.mismatch = "card " + draw + " went to seat " + seat + " as " + Deck.id(card) + " from " + slot + " instead of seat " + expected.seat()
+                        + " as " + expected.card() + " from " + expected.slot();
+        }
+    }
+
+    /**
+     * This class represents a seat in a replayed game, which is ready in the rounds its player took part in
+     */
+    private static class Replayed implements Seat
+    {
+        private final Player player; // The player in the seat
+        private boolean ready; // Whether the player takes part in the round being replayed
+
+        /**
+         * Create a seat
+         * @param player the player in the seat
+         */
+        private Replayed(Player player)
+        {
+            this.player = player;
+        }
+
+        @Override
+        public Player player()
+        {
+            return this.player;
+        }
+
+        @Override
+        public boolean isReady()
+        {
+            return this.ready;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package load;
+
+import game.Strategy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import static game.Constants.*;
+
+/**
+ * This class represents a synthetic player that connects to the server, plays until the game is over
+ * and records how long the server took to answer it.
+ */
+public class Bot implements Runnable
+{
+    private final String name; // The name the bot plays under
+    private final InetSocketAddress server; // The address of the server
+    private final Strategy strategy; // How the bot decides whether to deal or hold
+
+    private final Queue<String> pending = new ArrayDeque<>(); // The requests still waiting for a response, in the order they were sent
+    private PrintWriter writer; // For sending requests to the server
+    private int score; // The score of the bot in the current round
+
+    private long setup = -1; // The nanoseconds from starting to connect until the server first answered
+    private final List<Long> roundTrips = new ArrayList<>(); // The nanoseconds from each Ask until the server announced the decision
+    private final List<Long> broadcasts = new ArrayList<>(); // The time each broadcast arrived, in arrival order
+    private String table; // The names of the players at the bot's table, which identify the table
+    private int rounds; // The number of rounds the bot played
+    private boolean finished; // Whether the bot played until the game was over
+    private long askedAt; // When the bot was last asked to decide
+
+    /**
+     * Create a bot
+     * @param name the name the bot plays under
+     * @param server the address of the server
+     * @param strategy how the bot decides whether to deal or hold
+     */
+    public Bot(String name, InetSocketAddress server, Strategy strategy)
+    {
+        this.name = name;
+        this.server = server;
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void run()
+    {
+        long start = System.nanoTime();
+        try(Socket socket = new Socket())
+        {
+            socket.connect(this.server);
+            socket.setTcpNoDelay(true);
+            this.writer = new PrintWriter(socket.getOutputStream());
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+
+            send(PLAYER_NAME + " " + this.name, null);
+            send(CONNECTION_STATUS, CONNECTION_STATUS); // The first response tells how long it took to be seated
+
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                long now = System.nanoTime();
+                if(line.equals(ASK))
+                {
+                    this.askedAt = now;
+                    String decision = this.strategy.deal(this.score) ? DEAL : HOLD;
+                    send(decision, decision);
+                }
+                else if(line.startsWith(BROADCAST + " "))
+                {
+                    this.broadcasts.add(now);
+                    if(onBroadcast(line.substring(BROADCAST.length() + 1), now))
+                        break;
+                }
+                else // The response to the oldest request
+                    onResponse(this.pending.poll(), line, start, now);
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println(this.name + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handle a broadcast from the table
+     * @param message the message without its Broadcast prefix
+     * @param now when the message arrived
+     * @return true if the game is over or false if otherwise
+     */
+    private boolean onBroadcast(String message, long now)
+    {
+        if(message.equals(START_ROUND))
+        {
+            this.score = 0;
+            if(this.table == null) // The table is full once a round starts, so ask who is at it
+                send(ALL_NAMES, ALL_NAMES);
+        }
+        else if(message.startsWith(DEAL_CARD + " " + this.name + " ")) // A card dealt to this bot, ending with its score
+            this.score += Integer.parseInt(message.substring(message.lastIndexOf(' ') + 1));
+        else if(message.startsWith(ASK + " " + this.name + " chose") && this.askedAt != 0)
+        {
+            this.roundTrips.add(now - this.askedAt);
+            this.askedAt = 0;
+        }
+        else if(message.equals(END_ROUND))
+            ++this.rounds;
+        else if(message.equals(QUIT))
+        {
+            this.finished = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Handle the response to a request
+     * @param request the request being answered
+     * @param response the response of the server
+     * @param start when the bot started connecting
+     * @param now when the response arrived
+     */
+    private void onResponse(String request, String response, long start, long now)
+    {
+        if(CONNECTION_STATUS.equals(request) && this.setup < 0)
+        {
+            this.setup = now - start;
+            send(READY, READY);
+        }
+        else if(ALL_NAMES.equals(request))
+        {
+            String[] names = response.trim().split(" ");
+            Arrays.sort(names);
+            this.table = String.join(" ", names);
+        }
+    }
+
+    /**
+     * Send a request to the server
+     * @param request the request
+     * @param expects the kind of response the request gets, or null if it gets none
+     */
+    private void send(String request, String expects)
+    {
+        if(expects != null)
+            this.pending.offer(expects);
+        this.writer.println(request);
+        this.writer.flush();
+    }
+
+    /**
+     * Get how long it took to connect and be seated
+     * @return the nanoseconds until the server first answered, or -1 if it never did
+     */
+    public long setup()
+    {
+        return this.setup;
+    }
+
+    /**
+     * Get how long the server took to announce each decision of the bot
+     * @return the nanoseconds from each Ask until the decision was broadcast
+     */
+    public List<Long> roundTrips()
+    {
+        return this.roundTrips;
+    }
+
+    /**
+     * Get when each broadcast arrived
+     * @return the arrival time of every broadcast in arrival order
+     */
+    public List<Long> broadcasts()
+    {
+        return this.broadcasts;
+    }
+
+    /**
+     * Get the names of the players at the bot's table
+     * @return the sorted names, or null if the bot never played a round
+     */
+    public String table()
+    {
+        return this.table;
+    }
+
+    /**
+     * Get the number of rounds the bot played
+     * @return the rounds played
+     */
+    public int rounds()
+    {
+        return this.rounds;
+    }
+
+    /**
+     * Check if the bot played until the game was over
+     * @return true if the bot was told to quit or false if otherwise
+     */
+    public boolean finished()
+    {
+        return this.finished;
+    }
+}
@@ -0,0 +1,143 @@
+package load;
+
+import dream.Execution;
+import dream.Options;
+import game.Strategy;
+
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class generates load on a server from a single machine: it connects many synthetic players,
+ * lets them play every table to the end and reports how quickly the server answered them.
+ */
+public class LoadTest
+{
+    private static final String USAGE = "Proper Arguments: IP_Address Port Players [--strategy=hold|standN] [--ramp=Milliseconds] [--threads=platform|virtual] [--timeout=Seconds]";
+
+    public static void main(String[] args) throws Exception
+    {
+        if(args.length < 3)
+            throw new Exception(USAGE);
+
+        String address = args[0];
+        int port, players;
+
+        try
+        {
+            port = Integer.parseInt(args[1]);
+            players = Integer.parseInt(args[2]);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new Exception("Illegal Integer Values For Port or Players");
+        }
+
+        Options options = Options.parse(args, 3, Set.of("strategy", "ramp", Options.THREADS, "timeout"), USAGE);
+        Strategy strategy = Strategy.of(options.get("strategy", "stand17"));
+        int ramp = options.getInt("ramp", 0); // The milliseconds between two connections
+        int timeout = options.getInt("timeout", 600); // The seconds to wait for every game to end
+        ExecutorService executor = Execution.create(options.get(Options.THREADS, Execution.PLATFORM));
+
+        InetSocketAddress server = new InetSocketAddress(address, port);
+        Bot[] bots = new Bot[players];
+
+        long start = System.nanoTime();
+        for(int i = 0; i < players; ++i)
+        {
+            bots[i] = new Bot("Bot" + i, server, strategy);
+            executor.execute(bots[i]);
+            if(ramp > 0)
+                Thread.sleep(ramp);
+        }
+
+        executor.shutdown();
+        if(!executor.awaitTermination(timeout, TimeUnit.SECONDS))
+            System.out.println("Timed out before every game was over");
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        report(bots, seconds);
+    }
+
+    /**
+     * Print what the bots measured
+     * @param bots the bots that played
+     * @param seconds how long the test ran
+     */
+    private static void report(Bot[] bots, double seconds)
+    {
+        List<Long> setups = new ArrayList<>();
+        List<Long> roundTrips = new ArrayList<>();
+        Map<String, List<Bot>> tables = new HashMap<>(); // The bots grouped by the table they played at
+        int finished = 0;
+
+        for(Bot bot : bots)
+        {
+            if(bot.setup() >= 0)
+                setups.add(bot.setup());
+            roundTrips.addAll(bot.roundTrips());
+            if(bot.finished())
+                ++finished;
+            if(bot.table() != null)
+                tables.computeIfAbsent(bot.table(), table -> new ArrayList<>()).add(bot);
+        }
+
+        // Every player at a table receives the same broadcasts in the same order,
+        // so the lag of a broadcast is how much later it arrived than at the first player to get it
+        List<Long> lags = new ArrayList<>();
+        long rounds = 0;
+        for(List<Bot> table : tables.values())
+        {
+            rounds += table.get(0).rounds();
+
+            int count = Integer.MAX_VALUE;
+            for(Bot bot : table)
+                count = Math.min(count, bot.broadcasts().size());
+
+            for(int i = 0; i < count; ++i)
+            {
+                long first = Long.MAX_VALUE;
+                for(Bot bot : table)
+                    first = Math.min(first, bot.broadcasts().get(i));
+                for(Bot bot : table)
+                    lags.add(bot.broadcasts().get(i) - first);
+            }
+        }
+
+        System.out.printf("Players: %d connected, %d finished, in %.2f s%n", setups.size(), finished, seconds);
+        System.out.println(percentiles("Connection setup", setups));
+        System.out.println(percentiles("Ask round trip", roundTrips));
+        System.out.println(percentiles("Broadcast lag", lags));
+        System.out.printf("Rounds: %d on %d tables (%.1f rounds/s)%n", rounds, tables.size(), rounds / seconds);
+    }
+
+    /**
+     * Describe the distribution of a set of durations
+     * @param name the name of what was measured
+     * @param nanoseconds the durations in nanoseconds
+     * @return the percentiles in milliseconds
+     */
+    private static String percentiles(String name, List<Long> nanoseconds)
+    {
+        if(nanoseconds.isEmpty())
+            return String.format("%-18s no samples", name);
+
+        long[] sorted = nanoseconds.stream().mapToLong(Long::longValue).sorted().toArray();
+        return String.format("%-18s n=%-8d p50=%.3f ms  p90=%.3f ms  p99=%.3f ms  p99.9=%.3f ms  max=%.3f ms", name, sorted.length,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * Get a percentile of sorted durations
+     * @param sorted the durations in nanoseconds, in ascending order
+     * @param fraction the percentile as a fraction between 0 and 1
+     * @return the percentile in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction)
+    {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
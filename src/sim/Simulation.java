@@ -0,0 +1,207 @@
+package sim;
+
+import game.*;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static game.Constants.*;
+
+/**
+ * This class plays the rules of Pirates Pontoon without a server, with scripted players in every seat.
+ * The rounds are split into batches that are played in parallel, each batch with its own game, deck and random source,
+ * so a simulation with the same seed gives the same statistics however many workers play it.
+ */
+public class Simulation
+{
+    private static final int BATCHES = 256; // Split the rounds into many more batches than workers so the workers finish together
+
+    private final String[] strategies; // The name of the strategy in each seat
+    private final Strategy[] players; // The strategy in each seat
+    private final int decks; // The number of decks in the shoe of every game
+    private final int penetration; // The percentage of a shoe dealt before it is shuffled
+
+    /**
+     * Create a simulation dealt from a single deck
+     * @param strategies the name of the strategy in each seat
+     * @throws Exception if a strategy does not exist
+     */
+    public Simulation(String[] strategies) throws Exception
+    {
+        this(strategies, 1, Deck.DEFAULT_PENETRATION);
+    }
+
+    /**
+     * Create a simulation
+     * @param strategies the name of the strategy in each seat
+     * @param decks the number of decks in the shoe of every game, from 1 to 8
+     * @param penetration the percentage of a shoe dealt before it is shuffled, from 1 to 100
+     * @throws Exception if a strategy does not exist or the shoe is not valid
+     */
+    public Simulation(String[] strategies, int decks, int penetration) throws Exception
+    {
+        if(strategies.length < 1 || strategies.length > 4)
+            throw new Exception("Minimum Players: 1 Maximum Players: 4");
+        if(decks < 1 || decks > Deck.MAX_DECKS)
+            throw new Exception("Minimum Decks: 1 Maximum Decks: " + Deck.MAX_DECKS);
+        if(penetration < 1 || penetration > 100)
+            throw new Exception("Minimum Penetration: 1 Maximum Penetration: 100");
+
+        this.decks = decks;
+        this.penetration = penetration;
+
+        this.strategies = strategies;
+        this.players = new Strategy[strategies.length];
+        for(int i = 0; i < strategies.length; ++i)
+            this.players[i] = Strategy.of(strategies[i]);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        if(args.length < 2)
+            throw new Exception("Proper Arguments: Rounds Strategy [Strategy...] [--workers=Workers] [--seed=Number] [--decks=1-8] [--penetration=Percent]");
+
+        long rounds;
+        int workers = Runtime.getRuntime().availableProcessors();
+        long seed = new SecureRandom().nextLong();
+        int decks = 1;
+        int penetration = Deck.DEFAULT_PENETRATION;
+        List<String> strategies = new ArrayList<>();
+
+        try
+        {
+            rounds = Long.parseLong(args[0]);
+            for(int i = 1; i < args.length; ++i)
+            {
+                if(args[i].startsWith("--workers="))
+                    workers = Integer.parseInt(args[i].substring("--workers=".length()));
+                else if(args[i].startsWith("--seed="))
+                    seed = Long.parseLong(args[i].substring("--seed=".length()));
+                else if(args[i].startsWith("--decks="))
+                    decks = Integer.parseInt(args[i].substring("--decks=".length()));
+                else if(args[i].startsWith("--penetration="))
+                    penetration = Integer.parseInt(args[i].substring("--penetration=".length()));
+                else
+                    strategies.add(args[i]);
+            }
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new Exception("Illegal Integer Values For Rounds, Workers, Seed, Decks or Penetration");
+        }
+
+        if(rounds < 1 || workers < 1)
+            throw new Exception("Minimum Rounds: 1 Minimum Workers: 1");
+
+        Simulation simulation = new Simulation(strategies.toArray(new String[0]), decks, penetration);
+
+        long start = System.nanoTime();
+        Statistics statistics = simulation.run(rounds, workers, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Simulated %d rounds in %.2f s (%.0f rounds/s) on %d workers with seed %d%n",
+                statistics.rounds(), seconds, statistics.rounds() / seconds, workers, seed);
+        System.out.print(statistics.report(simulation.strategies));
+    }
+
+    /**
+     * Play the rounds of the simulation
+     * @param rounds the number of rounds to be played
+     * @param workers the number of threads playing the rounds
+     * @param seed the seed every batch's random source is split from
+     * @return the statistics of all the rounds
+     * @throws Exception if a batch failed
+     */
+    public Statistics run(long rounds, int workers, long seed) throws Exception
+    {
+        int batches = (int) Math.min(rounds, BATCHES); // The batches do not depend on the workers, so neither do the statistics
+
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] sources = new SplittableRandom[batches]; // Split before the batches start, since a SplittableRandom is not thread safe
+        for(int i = 0; i < batches; ++i)
+            sources[i] = master.split();
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try
+        {
+            return pool.submit(() -> IntStream.range(0, batches).parallel()
+                    .mapToObj(i -> play(rounds / batches + (i < rounds % batches ? 1 : 0), sources[i]))
+                    .reduce(Statistics::merge)
+                    .orElseThrow()).get();
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Play a batch of rounds on a game of its own
+     * @param rounds the number of rounds in the batch
+     * @param seeds the random source of the batch
+     * @return the statistics of the batch
+     */
+    private Statistics play(long rounds, SplittableRandom seeds)
+    {
+        Statistics statistics = new Statistics(this.players.length);
+
+        Scripted[] seats = new Scripted[this.players.length];
+        for(int i = 0; i < seats.length; ++i)
+            seats[i] = new Scripted(new Player("Seat" + i), this.players[i]);
+
+        Host host = new Host()
+        {
+            @Override
+            public Seat[] seats()
+            {
+                return seats;
+            }
+
+            @Override
+            public void broadcast(String message)
+            {
+                // Nobody is listening
+            }
+
+            @Override
+            public String ask(Seat seat)
+            {
+                Scripted scripted = (Scripted) seat;
+                return scripted.strategy().deal(scripted.player().score()) ? DEAL : HOLD;
+            }
+        };
+
+        long remaining = rounds;
+        while(remaining > 0) // A game holds at most Integer.MAX_VALUE rounds, so very large batches are played as several games
+        {
+            int gameRounds = (int) Math.min(remaining, Integer.MAX_VALUE);
+            Game game = new Game(host, gameRounds, seeds, this.decks, this.penetration);
+            game.set(seats);
+            while(game.hasMoreRounds())
+            {
+                statistics.record(game.playRound());
+                game.reset();
+            }
+            remaining -= gameRounds;
+        }
+        return statistics;
+    }
+
+    /**
+     * This record represents a seat taken by a scripted player, who is always ready
+     * @param player the player in the seat
+     * @param strategy the way the player decides
+     */
+    private record Scripted(Player player, Strategy strategy) implements Seat
+    {
+        @Override
+        public boolean isReady()
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package sim;
+
+import game.Result;
+
+/**
+ * This class collects how the rounds of a simulation ended.
+ */
+public class Statistics
+{
+    private long rounds; // The number of rounds played
+    private long dealerWins; // The rounds the dealer won
+    private long dealerBusts; // The rounds the dealer was busted and every player won
+    private long draws; // The rounds nobody won because players tied
+    private final long[] wins; // The rounds each seat won, including the rounds the dealer was busted
+    private final long[] busts; // The rounds each seat was busted
+
+    /**
+     * Create empty statistics
+     * @param seats the number of seats in the simulation
+     */
+    public Statistics(int seats)
+    {
+        this.wins = new long[seats];
+        this.busts = new long[seats];
+    }
+
+    /**
+     * Record the result of a round
+     * @param result the result of the round
+     */
+    public void record(Result result)
+    {
+        ++this.rounds;
+
+        int[] scores = result.scores();
+        for(int i = 0; i < scores.length; ++i)
+        {
+            if(scores[i] > 21)
+                ++this.busts[i];
+        }
+
+        if(result.winner() == Result.DEALER)
+            ++this.dealerWins;
+        else if(result.winner() == Result.DRAW)
+            ++this.draws;
+        else if(result.winner() == Result.EVERYONE)
+        {
+            ++this.dealerBusts;
+            for(int i = 0; i < this.wins.length; ++i)
+                ++this.wins[i];
+        }
+        else
+            ++this.wins[result.winner()];
+    }
+
+    /**
+     * Add the statistics of another part of the simulation to these
+     * @param other the statistics to be added
+     * @return these statistics
+     */
+    public Statistics merge(Statistics other)
+    {
+        this.rounds += other.rounds;
+        this.dealerWins += other.dealerWins;
+        this.dealerBusts += other.dealerBusts;
+        this.draws += other.draws;
+        for(int i = 0; i < this.wins.length; ++i)
+        {
+            this.wins[i] += other.wins[i];
+            this.busts[i] += other.busts[i];
+        }
+        return this;
+    }
+
+    /**
+     * Get the number of rounds played
+     * @return the total number of rounds
+     */
+    public long rounds()
+    {
+        return this.rounds;
+    }
+
+    /**
+     * Describe the statistics as a report
+     * @param strategies the name of the strategy in each seat
+     * @return the report
+     */
+    public String report(String[] strategies)
+    {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Dealer wins %.3f%%  Dealer busts %.3f%%  Draws %.3f%%%n",
+                percent(this.dealerWins), percent(this.dealerBusts), percent(this.draws)));
+        report.append(String.format("%-6s %-10s %10s %9s%n", "Seat", "Strategy", "Win %", "Bust %"));
+        for(int i = 0; i < this.wins.length; ++i)
+            report.append(String.format("%-6d %-10s %9.3f%% %8.3f%%%n", i, strategies[i], percent(this.wins[i]), percent(this.busts[i])));
+        return report.toString();
+    }
+
+    /**
+     * Get a count as a percentage of the rounds played
+     * @param count the count
+     * @return the percentage
+     */
+    private double percent(long count)
+    {
+        return this.rounds == 0 ? 0 : 100.0 * count / this.rounds;
+    }
+}
@@ -0,0 +1,115 @@
+package dream;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the commands decoded from the bytes of a line, and the arguments taken from them.
+ */
+public class CommandTest
+{
+    /**
+     * Decode a line of text
+     * @param text the line, without its line ending
+     * @return the command of the line
+     */
+    private static Command decode(String text)
+    {
+        byte[] line = text.getBytes(StandardCharsets.UTF_8);
+        return Command.decode(line, line.length);
+    }
+
+    /**
+     * Take the argument of a line of text
+     * @param text the line, without its line ending
+     * @return the argument of the command or null if there is none
+     */
+    private static String argument(String text)
+    {
+        byte[] line = text.getBytes(StandardCharsets.UTF_8);
+        return Command.decode(line, line.length).argument(line, line.length);
+    }
+
+    @Test
+    public void decodesEveryCommandWord()
+    {
+        for(Command command : Command.values())
+        {
+            if(command != Command.UNKNOWN)
+                assertEquals(command, decode(command.word()), command.word());
+        }
+    }
+
+    @Test
+    public void tellsApartCommandsSharingTheirFirstByte()
+    {
+        assertEquals(Command.NAMES, decode("Names"));
+        assertEquals(Command.NAME, decode("Name alice"));
+        assertEquals(Command.READY, decode("Ready"));
+        assertEquals(Command.RESUME, decode("Resume 0123abcd"));
+        assertEquals(Command.HOLD, decode("Hold"));
+        assertEquals(Command.HISTORY, decode("History bob"));
+    }
+
+    @Test
+    public void onlyLetsAnArgumentFollowTheCommandsTakingOne()
+    {
+        assertEquals(Command.NAME, decode("Name alice"));
+        assertEquals(Command.RESUME, decode("Resume 0123abcd"));
+        assertEquals(Command.WATCH, decode("Watch 3"));
+
+        assertEquals(Command.UNKNOWN, decode("Ready now"));
+        assertEquals(Command.UNKNOWN, decode("Connection 2"));
+        assertEquals(Command.UNKNOWN, decode("Quit now"));
+        assertEquals(Command.UNKNOWN, decode("Odds please"));
+    }
+
+    @Test
+    public void needsASpaceBeforeTheArgument()
+    {
+        assertEquals(Command.UNKNOWN, decode("Namealice"));
+        assertEquals(Command.UNKNOWN, decode("Resume0123abcd"));
+        assertEquals(Command.UNKNOWN, decode("WatchX"));
+    }
+
+    @Test
+    public void letsAnythingFollowThePrefixCommands()
+    {
+        assertEquals(Command.DEAL, decode("Deal"));
+        assertEquals(Command.DEAL, decode("Dealer"));
+        assertEquals(Command.LEADERBOARD, decode("Leaderboard 5"));
+        assertEquals(Command.HISTORY, decode("History"));
+    }
+
+    @Test
+    public void decodesAnythingElseAsUnknown()
+    {
+        assertEquals(Command.UNKNOWN, decode(""));
+        assertEquals(Command.UNKNOWN, decode("N"));
+        assertEquals(Command.UNKNOWN, decode("Nam"));
+        assertEquals(Command.UNKNOWN, decode("hold"));
+        assertEquals(Command.UNKNOWN, decode("Xyzzy"));
+    }
+
+    @Test
+    public void takesTheFirstWordAfterTheCommandAsItsArgument()
+    {
+        assertEquals("alice", argument("Name alice"));
+        assertEquals("alice", argument("Name alice smith"));
+        assertEquals("3", argument("Watch 3"));
+        assertEquals("Zoë", argument("Name Zoë"));
+        assertNull(argument("Watch"));
+        assertNull(argument("Name "));
+    }
+
+    @Test
+    public void decodesOnlyTheGivenLengthOfALineBeingReused()
+    {
+        byte[] line = "Ready alice".getBytes(StandardCharsets.UTF_8);
+        assertEquals(Command.READY, Command.decode(line, 5));
+        assertEquals(Command.UNKNOWN, Command.decode(line, line.length));
+    }
+}
@@ -0,0 +1,132 @@
+package dream;
+
+import org.junit.jupiter.api.Test;
+
+import static game.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks what each policy does with a line that does not fit in a full outbound queue.
+ */
+public class OutboundTest
+{
+    private static final byte[] CHAT = Outbound.encode(BROADCAST + " " + MESSAGE + " alice has joined the game."); // Only text for the player's log
+    private static final byte[] EVENT = Outbound.encode(BROADCAST + " " + DEAL_CARD + " alice Ace Spades"); // A game event
+    private static final byte[] EVENT_AND_CHAT = Outbound.encode(BROADCAST + " " + MESSAGE + " alice holds\n" + BROADCAST + " " + END); // Commentary followed by an event
+
+    /**
+     * Take every line out of a queue
+     * @param outbound the queue
+     * @return the number of lines taken
+     */
+    private static int drain(Outbound outbound)
+    {
+        int lines = 0;
+        while(outbound.poll() != null)
+            ++lines;
+        return lines;
+    }
+
+    @Test
+    public void queuesLinesUpToTheLimit()
+    {
+        Outbound outbound = new Outbound(2L * EVENT.length, Outbound.Policy.DISCONNECT);
+        assertTrue(outbound.offer(EVENT));
+        assertTrue(outbound.offer(EVENT));
+        assertEquals(2L * EVENT.length, outbound.backlog());
+
+        assertSame(EVENT, outbound.poll());
+        assertEquals(EVENT.length, outbound.backlog());
+        assertSame(EVENT, outbound.poll());
+        assertNull(outbound.poll());
+        assertTrue(outbound.isEmpty());
+        assertEquals(0, outbound.backlog());
+    }
+
+    @Test
+    public void dropsTheLineThatDoesNotFit()
+    {
+        Outbound outbound = new Outbound(EVENT.length, Outbound.Policy.DROP);
+        long dropped = Outbound.droppedLines();
+
+        assertTrue(outbound.offer(EVENT));
+        assertTrue(outbound.offer(CHAT)); // Dropped, but the client stays connected
+
+        assertEquals(dropped + 1, Outbound.droppedLines());
+        assertEquals(EVENT.length, outbound.backlog());
+        assertEquals(1, drain(outbound));
+    }
+
+    @Test
+    public void disconnectsTheClientWhenALineDoesNotFit()
+    {
+        Outbound outbound = new Outbound(EVENT.length, Outbound.Policy.DISCONNECT);
+        long disconnects = Outbound.disconnects();
+
+        assertTrue(outbound.offer(EVENT));
+        assertFalse(outbound.offer(EVENT));
+
+        assertEquals(disconnects + 1, Outbound.disconnects());
+        assertEquals(EVENT.length, outbound.backlog()); // The line that did not fit was never counted
+    }
+
+    @Test
+    public void coalescesTheChatToMakeRoom()
+    {
+        Outbound outbound = new Outbound(3L * CHAT.length + EVENT.length, Outbound.Policy.COALESCE);
+        long coalesced = Outbound.coalescedLines();
+
+        for(int i = 0; i < 3; ++i)
+            assertTrue(outbound.offer(CHAT));
+        assertTrue(outbound.offer(EVENT));
+        assertTrue(outbound.offer(EVENT)); // Only fits once the chat is dropped
+
+        assertEquals(coalesced + 3, Outbound.coalescedLines());
+        assertEquals(2L * EVENT.length, outbound.backlog());
+        assertSame(EVENT, outbound.poll());
+        assertSame(EVENT, outbound.poll());
+        assertNull(outbound.poll());
+        assertEquals(0, outbound.backlog());
+    }
+
+    @Test
+    public void keepsALineCarryingAnEventAfterItsCommentary()
+    {
+        Outbound outbound = new Outbound(EVENT_AND_CHAT.length + CHAT.length, Outbound.Policy.COALESCE);
+        assertTrue(outbound.offer(EVENT_AND_CHAT));
+        assertTrue(outbound.offer(CHAT));
+        assertTrue(outbound.offer(EVENT)); // Only the chat can be dropped
+
+        assertSame(EVENT_AND_CHAT, outbound.poll());
+        assertSame(EVENT, outbound.poll());
+        assertNull(outbound.poll());
+    }
+
+    @Test
+    public void disconnectsTheClientWhenCoalescingIsNotEnough()
+    {
+        Outbound outbound = new Outbound(2L * EVENT.length, Outbound.Policy.COALESCE);
+        long disconnects = Outbound.disconnects();
+
+        assertTrue(outbound.offer(EVENT));
+        assertTrue(outbound.offer(EVENT));
+        assertFalse(outbound.offer(EVENT)); // No chat to drop
+
+        assertEquals(disconnects + 1, Outbound.disconnects());
+        assertEquals(2, drain(outbound));
+    }
+
+    @Test
+    public void clearsTheLinesAndTheirBytes()
+    {
+        Outbound outbound = new Outbound(Long.MAX_VALUE, Outbound.Policy.DROP);
+        outbound.offer(EVENT);
+        outbound.offer(CHAT);
+        outbound.clear();
+
+        assertTrue(outbound.isEmpty());
+        assertEquals(0, outbound.backlog());
+        assertTrue(outbound.offer(EVENT));
+        assertEquals(EVENT.length, outbound.backlog());
+    }
+}
@@ -0,0 +1,195 @@
+package dream;
+
+import game.Pacing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static game.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a player who lost their connection takes back their seat with their session token, and is sent the lines they missed.
+ */
+public class SessionTest
+{
+    /**
+     * An in-memory connection that keeps every line sent to it
+     */
+    private static class RecordingConnection implements Connection
+    {
+        private final List<String> lines = new CopyOnWriteArrayList<>(); // The lines sent, without their line endings
+        private volatile boolean closed = false; // Whether the server closed the connection
+
+        @Override
+        public void send(byte[] line)
+        {
+            for(String message : new String(line, StandardCharsets.UTF_8).split("\n")) // A game event may carry several lines in one write
+                this.lines.add(message);
+        }
+
+        @Override
+        public void close()
+        {
+            this.closed = true;
+        }
+
+        @Override
+        public String address()
+        {
+            return "recording";
+        }
+
+        @Override
+        public long backlog()
+        {
+            return 0;
+        }
+    }
+
+    private ExecutorService executor;
+    private Server server;
+
+    @BeforeEach
+    public void setUp()
+    {
+        this.executor = Executors.newCachedThreadPool();
+        this.server = new Server("127.0.0.1", 0, 2, 5, 0, Pacing.HUMAN, 1, 75, new SplittableRandom(1), this.executor, 0, null, null, null); // Human pacing, so the game hardly moves on during a test
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Connect a player and get them ready to play
+     * @param name the name of the player
+     * @param connection the connection of the player
+     * @return the client of the player
+     */
+    private Client join(String name, Connection connection)
+    {
+        Client client = new Client(connection, this.server);
+        client.handle(PLAYER_NAME + " " + name);
+        client.handle(READY);
+        return client;
+    }
+
+    /**
+     * Seat two players at a table, waiting until the table has been opened
+     * @param first the connection of the first player
+     * @param second the connection of the second player
+     * @return the clients of the players, seated at the same table
+     * @throws InterruptedException if the wait was interrupted
+     */
+    private Client[] seat(Connection first, Connection second) throws InterruptedException
+    {
+        Client[] clients = {join("alice", first), join("bob", second)};
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(clients[1].table() == null && System.nanoTime() < deadline) // The table is opened on the executor
+            Thread.sleep(10);
+        assertNotNull(clients[1].table());
+        assertSame(clients[0].table(), clients[1].table());
+        return clients;
+    }
+
+    @Test
+    public void takesBackTheSeatAndSendsTheLinesMissed() throws InterruptedException
+    {
+        Client[] seated = seat(new RecordingConnection(), new RecordingConnection());
+        Client bob = seated[1];
+        String token = bob.session();
+        Table table = bob.table();
+
+        bob.disconnected();
+        table.broadcast(MESSAGE + " while bob was away");
+
+        RecordingConnection back = new RecordingConnection();
+        Client resumed = new Client(back, this.server);
+        resumed.handle(RESUME + " " + token);
+
+        assertFalse(back.closed);
+        assertEquals(SESSION + " " + token, back.lines.get(0));
+        assertTrue(back.lines.contains(BROADCAST + " " + MESSAGE + " while bob was away"));
+        assertSame(table, resumed.table());
+        assertEquals("bob", resumed.player().name());
+        assertSame(resumed, this.server.session(token));
+    }
+
+    @Test
+    public void keepsTheLinesMissedWhenTheLossIsReportedTwice() throws InterruptedException
+    {
+        Client[] seated = seat(new RecordingConnection(), new RecordingConnection());
+        Client bob = seated[1];
+        Table table = bob.table();
+
+        bob.disconnected();
+        table.broadcast(MESSAGE + " while bob was away");
+        bob.disconnected(); // The read loop and the writer both saw the connection go
+
+        RecordingConnection back = new RecordingConnection();
+        new Client(back, this.server).handle(RESUME + " " + bob.session());
+
+        assertTrue(back.lines.contains(BROADCAST + " " + MESSAGE + " while bob was away"));
+    }
+
+    @Test
+    public void dropsTheOldConnectionWhenItIsStillOpen() throws InterruptedException
+    {
+        RecordingConnection old = new RecordingConnection();
+        Client[] seated = seat(new RecordingConnection(), old);
+        Client bob = seated[1];
+
+        RecordingConnection back = new RecordingConnection();
+        Client resumed = new Client(back, this.server);
+        resumed.handle(RESUME + " " + bob.session());
+
+        assertTrue(old.closed);
+        assertEquals(Client.State.DISCONNECTED, bob.state());
+        assertEquals(SESSION + " " + bob.session(), back.lines.get(0));
+
+        int before = old.lines.size();
+        resumed.table().broadcast(MESSAGE + " after the handover");
+        assertEquals(before, old.lines.size());
+        assertTrue(back.lines.contains(BROADCAST + " " + MESSAGE + " after the handover"));
+    }
+
+    @Test
+    public void refusesATokenThatIsNotASession() throws InterruptedException
+    {
+        seat(new RecordingConnection(), new RecordingConnection());
+
+        RecordingConnection stranger = new RecordingConnection();
+        Client client = new Client(stranger, this.server);
+        client.handle(RESUME + " 00000000000000000000000000000000");
+
+        assertTrue(stranger.closed);
+        assertTrue(stranger.lines.isEmpty());
+        assertNull(client.table());
+    }
+
+    @Test
+    public void endsTheSessionOfAPlayerWhoQuits() throws InterruptedException
+    {
+        Client[] seated = seat(new RecordingConnection(), new RecordingConnection());
+        Client bob = seated[1];
+        String token = bob.session();
+
+        bob.handle(QUIT);
+        assertNull(this.server.session(token));
+
+        RecordingConnection back = new RecordingConnection();
+        new Client(back, this.server).handle(RESUME + " " + token);
+        assertTrue(back.closed);
+    }
+}
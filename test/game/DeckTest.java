@@ -0,0 +1,130 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a shoe rebuilt from the positions its cards were drawn from is left exactly as it was, and the numbering of the cards.
+ */
+public class DeckTest
+{
+    /**
+     * Deal rounds from a shoe, keeping the positions of the cards dealt since it was last shuffled as a journal would
+     * @param deck the shoe
+     * @param random the random source drawing the cards
+     * @param rounds the number of rounds dealt
+     * @param cards the number of cards dealt in each round
+     * @return the positions of the cards dealt in each round since the shoe was last shuffled
+     */
+    private static int[][] deal(Deck deck, SplittableRandom random, int rounds, int cards)
+    {
+        List<int[]> dealt = new ArrayList<>();
+        for(int round = 0; round < rounds; ++round)
+        {
+            int[] slots = new int[cards];
+            for(int i = 0; i < cards; ++i)
+            {
+                deck.draw(random);
+                slots[i] = deck.drawn();
+            }
+            dealt.add(slots);
+            if(deck.endRound()) // The cards dealt before a shuffle are back in the shoe
+                dealt.clear();
+        }
+        return dealt.toArray(new int[0][]);
+    }
+
+    /**
+     * Rebuild a shoe the way an interrupted game is restored, round by round
+     * @param decks the number of decks in the shoe
+     * @param penetration the percentage of the shoe dealt before it is shuffled
+     * @param dealt the positions of the cards dealt in each round since the shoe was last shuffled
+     * @return the rebuilt shoe
+     */
+    private static Deck rebuild(int decks, int penetration, int[][] dealt)
+    {
+        Deck deck = new Deck(decks, penetration);
+        for(int[] slots : dealt)
+        {
+            for(int slot : slots)
+                deck.redraw(slot);
+            deck.endRound();
+        }
+        return deck;
+    }
+
+    /**
+     * Check that two shoes hold the same cards in the same order, by dealing the rest of both from the same seed
+     * @param expected the shoe as it was dealt
+     * @param actual the rebuilt shoe
+     */
+    private static void assertSameShoe(Deck expected, Deck actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for(int value = 0; value < Constants.numberOfValues; ++value)
+            assertEquals(expected.count(value), actual.count(value));
+        assertArrayEquals(expected.composition(), actual.composition());
+
+        SplittableRandom first = new SplittableRandom(99), second = new SplittableRandom(99);
+        for(int i = 0; i < 40; ++i)
+            assertSame(expected.draw(first), actual.draw(second));
+    }
+
+    @Test
+    public void rebuildsASingleDeckFromTheSlotsDrawn()
+    {
+        Deck deck = new Deck(1, Deck.DEFAULT_PENETRATION);
+        int[][] dealt = deal(deck, new SplittableRandom(1), 3, 9);
+        assertEquals(3, dealt.length); // 27 cards are not enough to reach the cut card
+        assertSameShoe(deck, rebuild(1, Deck.DEFAULT_PENETRATION, dealt));
+    }
+
+    @Test
+    public void rebuildsAShoeHoldingSeveralCopiesOfEachCard()
+    {
+        Deck deck = new Deck(8, Deck.DEFAULT_PENETRATION);
+        int[][] dealt = deal(deck, new SplittableRandom(2), 12, 15);
+        assertSameShoe(deck, rebuild(8, Deck.DEFAULT_PENETRATION, dealt));
+    }
+
+    @Test
+    public void rebuildsOnlyTheRoundsSinceTheShoeWasShuffled()
+    {
+        Deck deck = new Deck(1, 50);
+        int[][] dealt = deal(deck, new SplittableRandom(3), 5, 10); // Shuffled after the third round
+        assertEquals(2, dealt.length);
+        assertSameShoe(deck, rebuild(1, 50, dealt));
+    }
+
+    @Test
+    public void rebuildsAShoeThatRanOutInTheMiddleOfARound()
+    {
+        Deck deck = new Deck(1, 100);
+        int[][] dealt = deal(deck, new SplittableRandom(4), 3, 20); // The third round refills the shoe from the first two
+        assertEquals(3, dealt.length);
+        assertSameShoe(deck, rebuild(1, 100, dealt));
+    }
+
+    @Test
+    public void drawsTheSameCardsFromTheSameSeed()
+    {
+        Deck first = new Deck(6, Deck.DEFAULT_PENETRATION), second = new Deck(6, Deck.DEFAULT_PENETRATION);
+        deal(first, new SplittableRandom(5), 20, 12);
+        deal(second, new SplittableRandom(5), 20, 12);
+        assertSameShoe(first, second);
+    }
+
+    @Test
+    public void numbersEveryCardOfTheDeck()
+    {
+        for(int id = 0; id < 52; ++id)
+            assertEquals(id, Deck.id(Deck.card(id)));
+        assertEquals(Deck.id(Deck.card(7)), Deck.id(new Card(Deck.card(7).suit(), Deck.card(7).value(), Deck.card(7).score()))); // Equal cards share their number
+        assertThrows(IllegalArgumentException.class, () -> Deck.id(new Card("Stars", "Ace", 1)));
+    }
+}
@@ -0,0 +1,238 @@
+package journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the checksums of the journal, the games read back from it and the rolling of its segments.
+ */
+public class JournalTest
+{
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024; // The size of a segment on a server
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Open the journal in the test directory, failing the test if its writer stops
+     * @param segmentSize the bytes written to a segment before the next one is started
+     * @return the journal
+     * @throws IOException if the journal could not be opened
+     */
+    private Journal open(long segmentSize) throws IOException
+    {
+        return new Journal(this.directory, segmentSize, e -> fail("The journal stopped", e));
+    }
+
+    /**
+     * Read back every event in the test directory
+     * @return the events, in the order they were appended
+     * @throws IOException if a segment could not be read
+     */
+    private List<Event> events() throws IOException
+    {
+        List<Event> events = new ArrayList<>();
+        Journal.readAll(this.directory, events::add);
+        return events;
+    }
+
+    /**
+     * Get the segments in the test directory
+     * @return the segment files, in the order they were written
+     * @throws IOException if the directory could not be listed
+     */
+    private List<Path> segments() throws IOException
+    {
+        try(Stream<Path> files = Files.list(this.directory))
+        {
+            return files.filter(file -> file.getFileName().toString().matches("journal-\\d{8}\\.bin")).sorted().toList();
+        }
+    }
+
+    /**
+     * Journal the opening of a table for two players
+     * @param journal the journal
+     * @param table the id of the table
+     */
+    private static void open(Journal journal, int table)
+    {
+        journal.append(new Event.Open(table, 42L * table, 2, 5, 1, 75, new String[] {"alice", "bob"}, new String[] {"a0", "b1"}));
+    }
+
+    /**
+     * Journal a finished round, in which each seat and the dealer were dealt a card
+     * @param journal the journal
+     * @param table the id of the table
+     * @param round the number of the round
+     * @param slots the positions in the shoe the cards were drawn from
+     */
+    private static void round(Journal journal, int table, int round, int... slots)
+    {
+        journal.append(new Event.Round(table, round, 1000L + round));
+        for(int draw = 0; draw < slots.length; ++draw)
+            journal.append(new Event.Dealt(table, draw % 2, draw, draw, slots[draw]));
+        journal.append(new Event.Outcome(table, round, 0, 18, new int[] {20, 15}, new int[] {round, 0}));
+    }
+
+    @Test
+    public void readsBackEveryEventInOrder() throws IOException
+    {
+        Journal journal = open(SEGMENT_SIZE);
+        open(journal, 1);
+        round(journal, 1, 1, 10, 11, 12);
+        journal.append(new Event.Decision(1, 1, true, false));
+        journal.append(new Event.Shuffle(1));
+        journal.append(new Event.Close(1));
+        journal.sync();
+
+        List<Event> events = events();
+        assertEquals(9, events.size());
+        Event.Open opened = assertInstanceOf(Event.Open.class, events.get(0));
+        assertEquals(42L, opened.seed());
+        assertArrayEquals(new String[] {"alice", "bob"}, opened.names());
+        assertArrayEquals(new String[] {"a0", "b1"}, opened.sessions());
+        assertEquals(new Event.Dealt(1, 1, 1, 1, 11), events.get(3));
+        assertEquals(new Event.Decision(1, 1, true, false), events.get(6));
+        assertEquals(new Event.Close(1), events.get(8));
+    }
+
+    @Test
+    public void completesTheDurableFutureOnceTheEventsAreOnTheDisk() throws Exception
+    {
+        Journal journal = open(SEGMENT_SIZE);
+        open(journal, 1);
+        journal.durable().get();
+        assertEquals(1, events().size());
+
+        assertTrue(journal.durable().isDone()); // Nothing new to wait for
+    }
+
+    @Test
+    public void stopsReadingAtAnEventWhoseChecksumDoesNotMatch() throws IOException
+    {
+        Journal journal = open(SEGMENT_SIZE);
+        open(journal, 1);
+        round(journal, 1, 1, 10, 11);
+        journal.sync();
+
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) // Flip a byte of the last event, as a torn write would
+        {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), size - 1);
+        }
+
+        List<Event> events = new ArrayList<>();
+        long end = Journal.read(segment, events::add);
+        assertEquals(4, events.size()); // The Outcome is dropped
+        assertTrue(end < size);
+    }
+
+    @Test
+    public void dropsAnEventCutShortAndCarriesOnAfterTheLastCompleteOne() throws IOException
+    {
+        Journal journal = open(SEGMENT_SIZE);
+        open(journal, 1);
+        journal.append(new Event.Round(1, 1, 7L));
+        journal.sync();
+
+        Path segment = segments().get(0);
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) // The server stopped half way through the Round
+        {
+            channel.truncate(Files.size(segment) - 3);
+        }
+
+        Journal reopened = open(SEGMENT_SIZE);
+        reopened.append(new Event.Close(1));
+        reopened.sync();
+
+        List<Event> events = events();
+        assertEquals(2, events.size());
+        assertInstanceOf(Event.Open.class, events.get(0));
+        assertEquals(new Event.Close(1), events.get(1));
+    }
+
+    @Test
+    public void recoversTheGamesThatWereInterrupted() throws IOException
+    {
+        Journal journal = open(SEGMENT_SIZE);
+        open(journal, 1);
+        round(journal, 1, 1, 10, 11, 12);
+        round(journal, 1, 2, 20, 21);
+        journal.append(new Event.Round(1, 3, 1003L)); // Interrupted in the middle of the third round
+        journal.append(new Event.Dealt(1, 0, 0, 5, 30));
+        open(journal, 2);
+        journal.append(new Event.Close(2)); // Finished, so not recovered
+        journal.sync();
+
+        Journal reopened = open(SEGMENT_SIZE);
+        assertEquals(2, reopened.lastTable());
+        assertEquals(1, reopened.recovered().size());
+
+        Journal.Recovered game = reopened.recovered().iterator().next();
+        assertEquals(1, game.table());
+        assertEquals(42L, game.seed());
+        assertEquals(2, game.played());
+        assertArrayEquals(new int[] {2, 0}, game.highScores());
+        assertArrayEquals(new String[] {"a0", "b1"}, game.sessions());
+        assertEquals(2, game.dealt().length); // Only the finished rounds, the third is dealt again
+        assertArrayEquals(new int[] {10, 11, 12}, game.dealt()[0]);
+        assertArrayEquals(new int[] {20, 21}, game.dealt()[1]);
+    }
+
+    @Test
+    public void forgetsTheCardsDealtBeforeTheShoeWasShuffled() throws IOException
+    {
+        Journal journal = open(SEGMENT_SIZE);
+        open(journal, 1);
+        round(journal, 1, 1, 10, 11);
+        journal.append(new Event.Shuffle(1));
+        round(journal, 1, 2, 20);
+        journal.sync();
+
+        Journal.Recovered game = open(SEGMENT_SIZE).recovered().iterator().next();
+        assertEquals(2, game.played());
+        assertEquals(1, game.dealt().length);
+        assertArrayEquals(new int[] {20}, game.dealt()[0]);
+    }
+
+    @Test
+    public void rollsOnToTheNextSegmentAndDeletesTheFinishedOnes() throws IOException
+    {
+        Journal journal = open(256);
+        open(journal, 1);
+        for(int round = 1; round <= 3; ++round) // More than a segment, so the first holds nothing of the next table
+            round(journal, 1, round, 10, 11, 12);
+        journal.append(new Event.Close(1));
+        open(journal, 2);
+        for(int round = 1; round <= 10; ++round)
+            round(journal, 2, round, round, round + 1);
+        journal.sync();
+
+        List<Path> segments = segments();
+        assertTrue(segments.size() > 1);
+        assertFalse(segments.contains(this.directory.resolve("journal-00000001.bin"))); // Only held the finished table
+        for(Path segment : segments)
+            assertTrue(Files.size(segment) <= 256);
+
+        List<Event> events = events();
+        assertEquals(10, assertInstanceOf(Event.Outcome.class, events.get(events.size() - 1)).round());
+        assertFalse(events.stream().anyMatch(event -> event instanceof Event.Open open && open.table() == 1)); // Only its Close may be left, in a segment shared with the next table
+
+        Journal.Recovered game = open(256).recovered().iterator().next(); // Recovered across the segments
+        assertEquals(2, game.table());
+        assertEquals(10, game.played());
+    }
+}